@@ -1,18 +1,58 @@
-//package com.ecommerce.api.config;
-//
-//import org.springframework.context.annotation.Bean;
-//import org.springframework.context.annotation.Configuration;
-//import org.springframework.data.domain.AuditorAware;
-//import org.springframework.data.mongodb.config.EnableMongoAuditing;
-//
-//import java.util.Optional;
-//
-//@Configuration
-//@EnableMongoAuditing
-//public class MongoConfig {
-//
-//    @Bean
-//    public AuditorAware<String> auditorProvider() {
-//        return () -> Optional.of("system"); // You can customize this to return current user
-//    }
-//}
+package com.ecommerce.api.config;
+
+import com.ecommerce.api.entity.Product;
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    // Store BigDecimal values (product and variation prices) as Decimal128 instead of the
+    // default String, so range queries compare numerically and can use the price index
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new BigDecimalToDecimal128Converter(),
+                new Decimal128ToBigDecimalConverter()
+        ));
+    }
+
+    // Every product is written with isActive set, the product queries match a plain isActive: true
+    // (products stored before the flag was enforced are fixed by ProductActiveFlagBackfill)
+    @Bean
+    public BeforeConvertCallback<Product> productActiveFlagCallback() {
+        return (product, collection) -> {
+            if (product.getIsActive() == null) {
+                product.setIsActive(true);
+            }
+            return product;
+        };
+    }
+
+    @WritingConverter
+    static class BigDecimalToDecimal128Converter implements Converter<BigDecimal, Decimal128> {
+
+        @Override
+        public Decimal128 convert(BigDecimal source) {
+            return new Decimal128(source);
+        }
+    }
+
+    @ReadingConverter
+    static class Decimal128ToBigDecimalConverter implements Converter<Decimal128, BigDecimal> {
+
+        @Override
+        public BigDecimal convert(Decimal128 source) {
+            return source.bigDecimalValue();
+        }
+    }
+}
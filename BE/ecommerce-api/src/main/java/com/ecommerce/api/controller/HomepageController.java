@@ -0,0 +1,38 @@
+package com.ecommerce.api.controller;
+
+import com.ecommerce.api.service.HomepageSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/homepage")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class HomepageController {
+
+    @Autowired
+    private HomepageSnapshotService homepageSnapshotService;
+
+    // Get the whole homepage (hero banners, special and featured products, categories) in one response,
+    // served as the pre-serialized JSON of the current snapshot
+    @GetMapping
+    public ResponseEntity<byte[]> getHomepage(@RequestParam(defaultValue = "en") String locale) {
+        return homepageSnapshotService.getPayload(locale)
+                .map(payload -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(payload))
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    // Debug endpoint: Rebuild the homepage snapshot now
+    @PostMapping("/debug/refresh")
+    public ResponseEntity<Map<String, Object>> refreshHomepage() {
+        int locales = homepageSnapshotService.refresh();
+        return ResponseEntity.ok(Map.of(
+            "message", "Rebuilt the homepage snapshot",
+            "localeCount", locales
+        ));
+    }
+}
@@ -29,21 +29,24 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean includeProduct) {
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<OrderResponse> orders = orderService.getAllOrders(pageable);
+        Page<OrderResponse> orders = orderService.getAllOrders(pageable, includeProduct);
 
         return ResponseEntity.ok(orders);
     }
 
     // Get order by ID
     @GetMapping("/{id}")
-    public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id) {
-        Optional<OrderResponse> order = orderService.getOrderById(id);
+    public ResponseEntity<OrderResponse> getOrderById(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean includeProduct) {
+        Optional<OrderResponse> order = orderService.getOrderById(id, includeProduct);
         return order.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
@@ -65,15 +68,19 @@ public class OrderController {
 
     // Get orders by user ID
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByUserId(@PathVariable Long userId) {
-        List<OrderResponse> orders = orderService.getOrdersByUserId(userId);
+    public ResponseEntity<List<OrderResponse>> getOrdersByUserId(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "false") boolean includeProduct) {
+        List<OrderResponse> orders = orderService.getOrdersByUserId(userId, includeProduct);
         return ResponseEntity.ok(orders);
     }
 
     // Get orders by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable String status) {
-        Optional<List<OrderResponse>> orders = orderService.getOrdersByStatus(status);
+    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(defaultValue = "false") boolean includeProduct) {
+        Optional<List<OrderResponse>> orders = orderService.getOrdersByStatus(status, includeProduct);
         return orders.map(ResponseEntity::ok).orElse(ResponseEntity.badRequest().build());
     }
 
@@ -1,10 +1,16 @@
 package com.ecommerce.api.controller;
 
+import com.ecommerce.api.dto.CursorPage;
 import com.ecommerce.api.dto.ProductRequest;
 import com.ecommerce.api.dto.ProductResponse;
+import com.ecommerce.api.dto.ProductSummaryResponse;
 import com.ecommerce.api.dto.ProductReviewRequest;
 import com.ecommerce.api.dto.ProductReviewResponse;
 import com.ecommerce.api.dto.SpecialProductsResponse;
+import com.ecommerce.api.dto.SuggestionResponse;
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import com.ecommerce.api.service.PriceDecimalMigration;
+import com.ecommerce.api.service.ProductIndexProvisioner;
 import com.ecommerce.api.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -29,9 +35,15 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private PriceDecimalMigration priceDecimalMigration;
+
+    @Autowired
+    private ProductIndexProvisioner productIndexProvisioner;
+
     // Get all products with pagination
     @GetMapping
-    public ResponseEntity<Page<ProductResponse>> getAllProducts(
+    public ResponseEntity<Page<ProductSummaryResponse>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
@@ -46,19 +58,20 @@ public class ProductController {
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<ProductResponse> products = productService.getAllProducts(pageable, category, subCategory, brand, minPrice, maxPrice);
+        Page<ProductSummaryResponse> products = productService.getAllProducts(pageable, category, subCategory, brand, minPrice, maxPrice);
 
         return ResponseEntity.ok(products);
     }
 
     // Get products with attribute-based filtering
     @GetMapping("/filter")
-    public ResponseEntity<Page<ProductResponse>> getProductsWithFilters(
+    public ResponseEntity<Page<ProductSummaryResponse>> getProductsWithFilters(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
             @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean includeFacets,
             @RequestParam Map<String, String> allParams) {
         
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
@@ -69,17 +82,66 @@ public class ProductController {
         // Extract attribute filters from request parameters
         Map<String, Object> attributeFilters = extractAttributeFilters(allParams);
         
-        Page<ProductResponse> products = productService.getProductsWithAttributeFilters(pageable, category, attributeFilters);
+        Page<ProductSummaryResponse> products = productService.getProductsWithAttributeFilters(pageable, category, attributeFilters, includeFacets);
 
         return ResponseEntity.ok(products);
     }
 
+    // Get all products with cursor pagination, pass back nextCursor to get the next page
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<ProductSummaryResponse>> getAllProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "none") String count,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String subCategory,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ?
+            Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+
+        Map<String, Object> attributeFilters = new java.util.HashMap<>();
+        if (subCategory != null) attributeFilters.put("subCategory", subCategory);
+        if (brand != null) attributeFilters.put("brand", brand);
+        if (minPrice != null) attributeFilters.put("minPrice", minPrice);
+        if (maxPrice != null) attributeFilters.put("maxPrice", maxPrice);
+
+        Optional<CursorPage<ProductSummaryResponse>> products = productService.getProductsByCursor(
+                category, attributeFilters, sort, size, cursor, count);
+        return products.map(ResponseEntity::ok).orElse(ResponseEntity.badRequest().build());
+    }
+
+    // Get products with attribute-based filtering and cursor pagination
+    @GetMapping("/filter/cursor")
+    public ResponseEntity<CursorPage<ProductSummaryResponse>> getProductsWithFiltersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "none") String count,
+            @RequestParam(required = false) String category,
+            @RequestParam Map<String, String> allParams) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ?
+            Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+
+        Map<String, Object> attributeFilters = extractAttributeFilters(allParams);
+
+        Optional<CursorPage<ProductSummaryResponse>> products = productService.getProductsByCursor(
+                category, attributeFilters, sort, size, cursor, count);
+        return products.map(ResponseEntity::ok).orElse(ResponseEntity.badRequest().build());
+    }
+
     // Helper method to extract attribute filters from request parameters
     private Map<String, Object> extractAttributeFilters(Map<String, String> allParams) {
         Map<String, Object> attributeFilters = new java.util.HashMap<>();
         
         // Skip standard pagination and sorting parameters
-        String[] skipParams = {"page", "size", "sortBy", "sortDir", "category"};
+        String[] skipParams = {"page", "size", "sortBy", "sortDir", "category", "includeFacets", "cursor", "count"};
         
         for (Map.Entry<String, String> entry : allParams.entrySet()) {
             String key = entry.getKey();
@@ -148,50 +210,63 @@ public class ProductController {
 
     // Get products by category
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ProductResponse>> getProductsByCategory(@PathVariable String category) {
-        List<ProductResponse> products = productService.getProductsByCategory(category);
+    public ResponseEntity<List<ProductSummaryResponse>> getProductsByCategory(@PathVariable String category) {
+        List<ProductSummaryResponse> products = productService.getProductsByCategory(category);
         return ResponseEntity.ok(products);
     }
 
     // Get products by subcategory
     @GetMapping("/category/{category}/subcategory/{subCategory}")
-    public ResponseEntity<List<ProductResponse>> getProductsBySubCategory(
+    public ResponseEntity<List<ProductSummaryResponse>> getProductsBySubCategory(
             @PathVariable String category, 
             @PathVariable String subCategory) {
-        List<ProductResponse> products = productService.getProductsBySubCategory(category, subCategory);
+        List<ProductSummaryResponse> products = productService.getProductsBySubCategory(category, subCategory);
         return ResponseEntity.ok(products);
     }
 
     // Get products by brand
     @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<ProductResponse>> getProductsByBrand(@PathVariable String brand) {
-        List<ProductResponse> products = productService.getProductsByBrand(brand);
+    public ResponseEntity<List<ProductSummaryResponse>> getProductsByBrand(@PathVariable String brand) {
+        List<ProductSummaryResponse> products = productService.getProductsByBrand(brand);
         return ResponseEntity.ok(products);
     }
 
-    // Search products by name
+    // Search products by name, description, brand and category (relevance ordered by default)
     @GetMapping("/search")
-    public ResponseEntity<Page<ProductResponse>> searchProducts(
+    public ResponseEntity<Page<ProductSummaryResponse>> searchProducts(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "relevance") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-            Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Sort sort;
+        if (sortBy.equalsIgnoreCase("relevance")) {
+            sort = Sort.unsorted();
+        } else {
+            sort = sortDir.equalsIgnoreCase("desc") ? 
+                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        }
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<ProductResponse> products = productService.searchProducts(query, pageable);
+        Page<ProductSummaryResponse> products = productService.searchProducts(query, pageable);
         return ResponseEntity.ok(products);
     }
 
+    // Type-ahead suggestions (product names, brands, categories) for the search box, most popular first
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productService.suggest(prefix, limit));
+    }
+
     // Get products by price range
     @GetMapping("/price-range")
-    public ResponseEntity<List<ProductResponse>> getProductsByPriceRange(
+    public ResponseEntity<List<ProductSummaryResponse>> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
             @RequestParam BigDecimal maxPrice) {
-        List<ProductResponse> products = productService.getProductsByPriceRange(minPrice, maxPrice);
+        List<ProductSummaryResponse> products = productService.getProductsByPriceRange(minPrice, maxPrice);
         return ResponseEntity.ok(products);
     }
 
@@ -271,26 +346,26 @@ public class ProductController {
 
     // Get featured products
     @GetMapping("/featured")
-    public ResponseEntity<List<ProductResponse>> getFeaturedProducts(
+    public ResponseEntity<List<ProductSummaryResponse>> getFeaturedProducts(
             @RequestParam(defaultValue = "10") int limit) {
-        List<ProductResponse> products = productService.getFeaturedProducts(limit);
+        List<ProductSummaryResponse> products = productService.getFeaturedProducts(limit);
         return ResponseEntity.ok(products);
     }
 
     // Get products with low stock
     @GetMapping("/low-stock")
-    public ResponseEntity<List<ProductResponse>> getLowStockProducts(
+    public ResponseEntity<List<ProductSummaryResponse>> getLowStockProducts(
             @RequestParam(defaultValue = "10") int threshold) {
-        List<ProductResponse> products = productService.getLowStockProducts(threshold);
+        List<ProductSummaryResponse> products = productService.getLowStockProducts(threshold);
         return ResponseEntity.ok(products);
     }
 
     // Get top-rated products
     @GetMapping("/top-rated")
-    public ResponseEntity<List<ProductResponse>> getTopRatedProducts(
+    public ResponseEntity<List<ProductSummaryResponse>> getTopRatedProducts(
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "4.0") Double minRating) {
-        List<ProductResponse> products = productService.getTopRatedProducts(limit, minRating);
+        List<ProductSummaryResponse> products = productService.getTopRatedProducts(limit, minRating);
         return ResponseEntity.ok(products);
     }
 
@@ -314,20 +389,38 @@ public class ProductController {
         ));
     }
 
+    // Debug endpoint: Rewrite string/double prices as Decimal128 (resumes from the last checkpoint)
+    @PostMapping("/debug/migrate-prices")
+    public ResponseEntity<MigrationCheckpoint> migratePrices() {
+        return ResponseEntity.ok(priceDecimalMigration.migrate());
+    }
+
+    // Debug endpoint: Create the declared product indexes and drop the undeclared managed ones
+    @PostMapping("/debug/provision-indexes")
+    public ResponseEntity<List<String>> provisionIndexes() {
+        return ResponseEntity.ok(productIndexProvisioner.provision());
+    }
+
+    // Debug endpoint: Explain the repository queries, collectionScans lists the ones not served by an index
+    @GetMapping("/debug/index-check")
+    public ResponseEntity<Map<String, Object>> checkIndexes() {
+        return ResponseEntity.ok(productIndexProvisioner.checkQueryPlans());
+    }
+
     // Get products by special property type
     @GetMapping("/special/{propertyType}")
-    public ResponseEntity<List<ProductResponse>> getProductsBySpecialProperty(
+    public ResponseEntity<List<ProductSummaryResponse>> getProductsBySpecialProperty(
             @PathVariable String propertyType,
             @RequestParam(defaultValue = "5") int limit) {
-        List<ProductResponse> products = productService.getProductsBySpecialProperty(propertyType, limit);
+        List<ProductSummaryResponse> products = productService.getProductsBySpecialProperty(propertyType, limit);
         return ResponseEntity.ok(products);
     }
 
     // Get all special products in one response (new arrivals, offers, best sellers)
     @GetMapping("/special")
-    public ResponseEntity<Map<String, List<ProductResponse>>> getAllSpecialProducts(
+    public ResponseEntity<Map<String, List<ProductSummaryResponse>>> getAllSpecialProducts(
             @RequestParam(defaultValue = "5") int limitPerType) {
-        Map<String, List<ProductResponse>> specialProducts = productService.getAllSpecialProducts(limitPerType);
+        Map<String, List<ProductSummaryResponse>> specialProducts = productService.getAllSpecialProducts(limitPerType);
         return ResponseEntity.ok(specialProducts);
     }
 
@@ -335,7 +428,7 @@ public class ProductController {
     @GetMapping("/special-grouped")
     public ResponseEntity<SpecialProductsResponse> getSpecialProductsGrouped(
             @RequestParam(defaultValue = "5") int limitPerType) {
-        Map<String, List<ProductResponse>> specialProductsMap = productService.getAllSpecialProducts(limitPerType);
+        Map<String, List<ProductSummaryResponse>> specialProductsMap = productService.getAllSpecialProducts(limitPerType);
         
         SpecialProductsResponse response = new SpecialProductsResponse(
             specialProductsMap.get("newArrivals"),
@@ -0,0 +1,43 @@
+package com.ecommerce.api.controller;
+
+import com.ecommerce.api.entity.SalesRollup;
+import com.ecommerce.api.service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/sales-rollups")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class SalesRollupController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    // Get pre-aggregated sales buckets (hour or day) starting in [from, to)
+    @GetMapping
+    public ResponseEntity<List<SalesRollup>> getRollups(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String category) {
+        Optional<List<SalesRollup>> rollups = salesRollupService.getRollups(granularity, from, to, category);
+        return rollups.map(ResponseEntity::ok).orElse(ResponseEntity.badRequest().build());
+    }
+
+    // Debug endpoint: Recompute every bucket from the orders table
+    @PostMapping("/debug/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        int buckets = salesRollupService.rebuild();
+        return ResponseEntity.ok(Map.of(
+            "message", "Rebuilt sales rollups from orders",
+            "bucketCount", buckets
+        ));
+    }
+}
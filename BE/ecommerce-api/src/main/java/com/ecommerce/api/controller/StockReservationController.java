@@ -0,0 +1,34 @@
+package com.ecommerce.api.controller;
+
+import com.ecommerce.api.entity.StockReservation;
+import com.ecommerce.api.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/reservations")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    // Hold the stock of the user's cart when checkout starts, pass the id as reservationId to POST /orders
+    @PostMapping("/cart/{userId}")
+    public ResponseEntity<StockReservation> reserveCart(@PathVariable Long userId) {
+        Optional<StockReservation> reservation = stockReservationService.reserveCart(userId);
+        return reservation.map(r -> ResponseEntity.status(HttpStatus.CREATED).body(r))
+                          .orElse(ResponseEntity.badRequest().build());
+    }
+
+    // Release a hold the user no longer needs (checkout abandoned)
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String id, @RequestParam Long userId) {
+        boolean released = stockReservationService.release(id, userId);
+        return released ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a cursor (keyset) paginated listing. Pass nextCursor back as the cursor
+ * parameter to get the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+    private Long totalElements; // Only set when a count was requested
+    private Boolean totalElementsExact; // False when totalElements is a lower bound
+}
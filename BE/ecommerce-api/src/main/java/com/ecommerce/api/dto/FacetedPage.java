@@ -0,0 +1,25 @@
+package com.ecommerce.api.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.List;
+
+/**
+ * Page of results serialized like a regular Page, with an extra "facets" property
+ */
+public class FacetedPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<FilterFacetDto> facets;
+
+    public FacetedPage(Page<T> page, List<FilterFacetDto> facets) {
+        super(page.getContent(), page.getPageable(), page.getTotalElements());
+        this.facets = facets;
+    }
+
+    public List<FilterFacetDto> getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Match counts for one filter of a category, returned by /products/filter?includeFacets=true.
+ * Counts ignore the filter's own selection but respect every other selected filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilterFacetDto {
+
+    private String name;
+    private String type; // "string" or "range"
+    private String unit; // Optional unit for range filters (e.g., "$", "lbs")
+    private List<OptionCount> options = new ArrayList<>(); // For string type filters
+    private List<RangeCount> ranges = new ArrayList<>(); // Histogram buckets for range type filters
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OptionCount {
+        private String value;
+        private long count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RangeCount {
+        private Double from;
+        private Double to;
+        private long count;
+    }
+}
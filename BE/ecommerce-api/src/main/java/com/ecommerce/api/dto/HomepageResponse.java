@@ -0,0 +1,24 @@
+package com.ecommerce.api.dto;
+
+import com.ecommerce.api.entity.HeroBanner;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Everything the homepage renders, served from the precomputed homepage snapshot
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HomepageResponse {
+
+    private List<HeroBanner> heroBanners;
+    private SpecialProductsResponse specialProducts;
+    private List<ProductSummaryResponse> featuredProducts;
+    private List<String> categories;
+    private LocalDateTime generatedAt;
+}
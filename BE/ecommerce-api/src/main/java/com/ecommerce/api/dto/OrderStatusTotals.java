@@ -0,0 +1,21 @@
+package com.ecommerce.api.dto;
+
+import com.ecommerce.api.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Number of orders and their summed total amount for one order status
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTotals {
+
+    private Order.OrderStatus status;
+    private Long orderCount;
+    private BigDecimal totalAmount;
+}
@@ -2,7 +2,6 @@ package com.ecommerce.api.dto;
 
 import com.ecommerce.api.entity.ProductSpecifications;
 import com.ecommerce.api.entity.ProductVariation;
-import com.ecommerce.api.entity.ProductReview;
 import com.ecommerce.api.entity.SpecialProperties;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -34,7 +33,6 @@ public class ProductResponse {
     private ProductSpecifications specifications;
     private Map<String, Object> attributes = new HashMap<>();
     private List<ProductVariation> variations = new ArrayList<>();
-    private List<ProductReview> reviews = new ArrayList<>();
     private Boolean isActive;
     private SpecialProperties specialProperties;
     private Double averageRating;
@@ -0,0 +1,30 @@
+package com.ecommerce.api.dto;
+
+import com.ecommerce.api.entity.SpecialProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Product card returned by list and grid endpoints, use GET /products/{id} for the full product
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryResponse {
+
+    private String id;
+    private String sku;
+    private String name;
+    private String category;
+    private String brand;
+    private BigDecimal price;
+    private String currency;
+    private String mainImageUrl;
+    private Double averageRating;
+    private Integer totalReviews;
+    private Integer totalStock;
+    private SpecialProperties specialProperties;
+}
@@ -14,7 +14,7 @@ import java.util.List;
 @AllArgsConstructor
 public class SpecialProductsResponse {
     
-    private List<ProductResponse> newArrivals;
-    private List<ProductResponse> productsWithOffers;
-    private List<ProductResponse> bestSellers;
+    private List<ProductSummaryResponse> newArrivals;
+    private List<ProductSummaryResponse> productsWithOffers;
+    private List<ProductSummaryResponse> bestSellers;
 }
@@ -0,0 +1,18 @@
+package com.ecommerce.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One type-ahead suggestion: the text to complete to and where it comes from
+ * (name, brand, category or subCategory)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+
+    private String text;
+    private String type;
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a batched data migration, so an interrupted run resumes after the last processed document
+ */
+@Document(collection = "migration_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationCheckpoint {
+
+    @Id
+    private String id; // Migration name
+
+    @Field("lastProcessedId")
+    private Object lastProcessedId;
+
+    @Field("processedCount")
+    private Long processedCount = 0L;
+
+    @Field("updatedCount")
+    private Long updatedCount = 0L;
+
+    @Field("completed")
+    private Boolean completed = false;
+
+    @Field("updatedAt")
+    private LocalDateTime updatedAt;
+
+    public MigrationCheckpoint(String id) {
+        this.id = id;
+    }
+}
@@ -18,7 +18,8 @@ import java.math.BigDecimal;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Order is required")
@@ -44,6 +45,10 @@ public class OrderItem {
     @Column(name = "product_image_url")
     private String productImageUrl;
 
+    // Category at order time, used by the sales rollups
+    @Column(name = "product_category", length = 50)
+    private String productCategory;
+
     @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     @Column(name = "quantity", nullable = false)
@@ -26,6 +26,13 @@ import java.util.HashMap;
 @AllArgsConstructor
 public class Product {
 
+    // Mongo field projection for cart and order line items, everything the responses show
+    // without the description, specifications, attributes and rating counters
+    public static final String LINE_ITEM_FIELDS = "{ 'sku': 1, 'name': 1, 'category': 1, 'subCategory': 1, " +
+            "'brand': 1, 'price': 1, 'currency': 1, 'stockQuantity': 1, 'images': 1, 'variations': 1, " +
+            "'isActive': 1, 'specialProperties': 1, 'averageRating': 1, 'totalReviews': 1, " +
+            "'createdAt': 1, 'updatedAt': 1 }";
+
     @Id
     private String id;
 
@@ -80,19 +87,24 @@ public class Product {
     @Field("variations")
     private List<ProductVariation> variations = new ArrayList<>();
 
-    @Field("reviews")
-    private List<ProductReview> reviews = new ArrayList<>();
-
     @Field("isActive")
     private Boolean isActive = true;
 
     @Field("specialProperties")
     private SpecialProperties specialProperties;
 
-    // Computed fields
+    // Rating stats, denormalized counters over the approved reviews in product_reviews.
+    // Only changed through atomic updates (ProductRepository.incrementRatingStats)
     private Double averageRating;
     private Integer totalReviews;
 
+    @Field("ratingSum")
+    private Long ratingSum;
+
+    // Review count per rating, keyed "1" to "5"
+    @Field("ratingHistogram")
+    private Map<String, Integer> ratingHistogram;
+
     @CreatedDate
     @Field("createdAt")
     private LocalDateTime createdAt;
@@ -102,14 +114,6 @@ public class Product {
     private LocalDateTime updatedAt;
 
     // Helper methods
-    public void addReview(ProductReview review) {
-        if (this.reviews == null) {
-            this.reviews = new ArrayList<>();
-        }
-        this.reviews.add(review);
-        computeRatingStats();
-    }
-
     public void addVariation(ProductVariation variation) {
         if (this.variations == null) {
             this.variations = new ArrayList<>();
@@ -124,29 +128,6 @@ public class Product {
         this.images.add(imageUrl);
     }
 
-    private void computeRatingStats() {
-        if (this.reviews == null || this.reviews.isEmpty()) {
-            this.averageRating = 0.0;
-            this.totalReviews = 0;
-            return;
-        }
-
-        List<ProductReview> approvedReviews = this.reviews.stream()
-                .filter(review -> review.getIsApproved() != null && review.getIsApproved())
-                .toList();
-
-        this.totalReviews = approvedReviews.size();
-        
-        if (this.totalReviews > 0) {
-            this.averageRating = approvedReviews.stream()
-                    .mapToInt(ProductReview::getRating)
-                    .average()
-                    .orElse(0.0);
-        } else {
-            this.averageRating = 0.0;
-        }
-    }
-
     // Get main image (first image in the list)
     public String getMainImageUrl() {
         return (images != null && !images.isEmpty()) ? images.get(0) : null;
@@ -3,6 +3,10 @@ package com.ecommerce.api.entity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -10,25 +14,44 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
+/**
+ * Product reviews live in their own collection instead of an array on the product document,
+ * so a product's size no longer grows with its reviews and pages are read from the index
+ */
+@Document(collection = "product_reviews")
+@CompoundIndex(name = "productId_date", def = "{ 'productId': 1, 'date': -1 }")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductReview {
 
+    @Id
+    private String id;
+
+    @NotNull(message = "Product ID is required")
+    @Field("productId")
+    private String productId;
+
     @NotNull(message = "User ID is required")
+    @Field("userId")
     private String userId;
 
     @NotNull(message = "Rating is required")
     @Min(value = 1, message = "Rating must be at least 1")
     @Max(value = 5, message = "Rating must be at most 5")
+    @Field("rating")
     private Integer rating;
 
     @Size(max = 1000, message = "Comment cannot exceed 1000 characters")
+    @Field("comment")
     private String comment;
 
+    @Field("date")
     private LocalDateTime date = LocalDateTime.now();
 
+    @Field("isVerifiedPurchase")
     private Boolean isVerifiedPurchase = false;
     
+    @Field("isApproved")
     private Boolean isApproved = true;
 }
@@ -0,0 +1,93 @@
+package com.ecommerce.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of a product document holding only what list and grid endpoints need.
+ * Always load it with the FIELDS projection, so the description, specifications, reviews
+ * and the rest of the images and variations never leave MongoDB.
+ */
+@Document(collection = "products")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummary {
+
+    // Mongo field projection for summaries: first image only, variation stock only. Also the source of
+    // the $project of CustomProductRepositoryImpl.findSpecialProductGroups
+    public static final String FIELDS = "{ 'sku': 1, 'name': 1, 'category': 1, 'brand': 1, 'price': 1, " +
+            "'currency': 1, 'stockQuantity': 1, 'images': { $slice: 1 }, " +
+            "'variations.stockQuantity': 1, 'variations.isActive': 1, " +
+            "'averageRating': 1, 'totalReviews': 1, 'specialProperties': 1, 'createdAt': 1 }";
+
+    @Id
+    private String id;
+
+    @Field("sku")
+    private String sku;
+
+    @Field("name")
+    private String name;
+
+    @Field("category")
+    private String category;
+
+    @Field("brand")
+    private String brand;
+
+    @Field("price")
+    private BigDecimal price;
+
+    @Field("currency")
+    private String currency;
+
+    @Field("stockQuantity")
+    private Integer stockQuantity;
+
+    @Field("images")
+    private List<String> images = new ArrayList<>();
+
+    @Field("variations")
+    private List<ProductVariation> variations = new ArrayList<>();
+
+    @Field("averageRating")
+    private Double averageRating;
+
+    @Field("totalReviews")
+    private Integer totalReviews;
+
+    @Field("specialProperties")
+    private SpecialProperties specialProperties;
+
+    @Field("createdAt")
+    private LocalDateTime createdAt;
+
+    // Same as Product.getMainImageUrl
+    public String getMainImageUrl() {
+        return (images != null && !images.isEmpty()) ? images.get(0) : null;
+    }
+
+    // Same as Product.getTotalStock
+    public Integer getTotalStock() {
+        int totalStock = this.stockQuantity != null ? this.stockQuantity : 0;
+
+        if (variations != null) {
+            totalStock += variations.stream()
+                    .filter(variation -> variation.getIsActive() != null && variation.getIsActive())
+                    .mapToInt(variation -> variation.getStockQuantity() != null ? variation.getStockQuantity() : 0)
+                    .sum();
+        }
+
+        return totalStock;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Sales of one category in one hour or day bucket, aggregated incrementally as orders are
+ * placed and cancelled. Orders count in the bucket of their creation time, cancelled orders
+ * are taken back out.
+ */
+@Entity
+@Table(name = "sales_rollups", uniqueConstraints = @UniqueConstraint(
+        name = "uk_sales_rollups_bucket", columnNames = {"granularity", "bucket_start", "category"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollup {
+
+    // Category used for order items without one
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "category", nullable = false, length = 50)
+    private String category;
+
+    // Orders with at least one item of the category
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        // date_trunc field name for the database side rebuild
+        public String sqlUnit() {
+            return unit == ChronoUnit.HOURS ? "hour" : "day";
+        }
+    }
+}
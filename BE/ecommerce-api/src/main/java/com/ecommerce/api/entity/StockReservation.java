@@ -0,0 +1,67 @@
+package com.ecommerce.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A time limited hold on product stock, placed when checkout starts. The held units are taken
+ * out of the product stock right away, so they cannot be sold twice, and go back to the stock
+ * if the hold expires or is released before an order uses it.
+ *
+ * HELD -> ORDERED (an order was placed with it) -> CONFIRMED or RELEASED (order cancelled)
+ * HELD -> RELEASED (expired or abandoned)
+ */
+@Document(collection = "stock_reservations")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_expiresAt", def = "{ 'status': 1, 'expiresAt': 1 }"),
+        @CompoundIndex(name = "orderId_status", def = "{ 'orderId': 1, 'status': 1 }")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    public enum Status {
+        HELD, ORDERED, CONFIRMED, RELEASED
+    }
+
+    @Id
+    private String id;
+
+    @Field("userId")
+    private Long userId;
+
+    @Field("orderId")
+    private Long orderId;
+
+    @Field("items")
+    private List<Item> items = new ArrayList<>();
+
+    @Field("status")
+    private Status status;
+
+    @Field("expiresAt")
+    private LocalDateTime expiresAt;
+
+    @Field("createdAt")
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String productId;
+        private String variationSku;
+        private Integer quantity;
+    }
+}
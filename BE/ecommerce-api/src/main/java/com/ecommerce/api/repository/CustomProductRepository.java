@@ -1,11 +1,48 @@
 package com.ecommerce.api.repository;
 
 import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Update;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface CustomProductRepository {
-    Page<Product> findByAttributeFilters(String category, Map<String, Object> attributeFilters, Pageable pageable);
+    Page<ProductSummary> findByFilters(String category, String subCategory, String brand,
+                                BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+
+    Page<ProductSummary> findByAttributeFilters(String category, Map<String, Object> attributeFilters, Pageable pageable);
+
+    // Keyset pagination: up to limit products sorting strictly after afterKeys (field name -> value,
+    // including _id), or the first ones when afterKeys is null
+    List<ProductSummary> findActiveProductsAfter(String category, Map<String, Object> attributeFilters, Sort sort,
+                                          Map<String, Object> afterKeys, int limit);
+
+    // Counts at most limit matches when limit > 0
+    long countActiveProducts(String category, Map<String, Object> attributeFilters, int limit);
+
+    // Adds one approved review with the given rating to the product's rating counters and
+    // recomputes averageRating, all in a single atomic update
+    void incrementRatingStats(String productId, int rating);
+
+    // Atomically adds delta to the product stock, or to the variation stock when variationSku is set,
+    // in a single findAndModify. A decrement only applies when at least -delta items are left.
+    // Returns the updated stock fields, empty when nothing matched
+    Optional<Product> adjustStock(String productId, String variationSku, int delta);
+
+    // Active products of every special property (specialProperties field name -> up to limitPerType
+    // summaries) from one $facet aggregation, so the homepage strips cost a single round trip
+    Map<String, List<ProductSummary>> findSpecialProductGroups(int limitPerType);
+
+    // Applies a targeted update (only the fields it sets) in a single findAndModify and returns the
+    // updated product, so concurrent $inc on the rating counters and stock are never overwritten
+    Optional<Product> updateFields(String productId, Update update);
+
+    // Overwrites the product or variation stock in a single findAndModify and returns the updated product
+    Optional<Product> setStock(String productId, String variationSku, int stockQuantity);
 }
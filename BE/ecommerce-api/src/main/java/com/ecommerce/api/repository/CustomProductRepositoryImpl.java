@@ -1,39 +1,321 @@
 package com.ecommerce.api.repository;
 
 import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSummary;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 @Repository
 public class CustomProductRepositoryImpl implements CustomProductRepository {
 
+    private static final String ID_FIELD = "_id";
+
+    // specialProperties flags served by findSpecialProductGroups
+    private static final List<String> SPECIAL_PROPERTIES = List.of("newArrival", "hasOffer", "bestSeller");
+
+    // ProductSummary.FIELDS as an aggregation $project, built from it so the two cannot drift apart
+    private static final Document SUMMARY_PROJECTION = summaryProjection();
+
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    // Only the filters that are provided are applied, price bounds are inclusive
     @Override
-    public Page<Product> findByAttributeFilters(String category, Map<String, Object> attributeFilters, Pageable pageable) {
-        Query query = new Query();
+    public Page<ProductSummary> findByFilters(String category, String subCategory, String brand,
+                                       BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         List<Criteria> criteriaList = new ArrayList<>();
+        criteriaList.add(Criteria.where("isActive").is(true));
+
+        if (category != null && !category.trim().isEmpty()) {
+            criteriaList.add(Criteria.where("category").is(category));
+        }
+        if (subCategory != null && !subCategory.trim().isEmpty()) {
+            criteriaList.add(Criteria.where("subCategory").is(subCategory));
+        }
+        if (brand != null && !brand.trim().isEmpty()) {
+            criteriaList.add(Criteria.where("brand").is(brand));
+        }
+        if (minPrice != null || maxPrice != null) {
+            Criteria priceCriteria = Criteria.where("price");
+            if (minPrice != null) {
+                priceCriteria = priceCriteria.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                priceCriteria = priceCriteria.lte(maxPrice);
+            }
+            criteriaList.add(priceCriteria);
+        }
+
+        Query query = new Query(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
+        long total = mongoTemplate.count(query, Product.class);
+        List<ProductSummary> products = mongoTemplate.find(summaryQuery(criteriaList).with(pageable), ProductSummary.class);
+
+        return new PageImpl<>(products, pageable, total);
+    }
+
+    @Override
+    public Page<ProductSummary> findByAttributeFilters(String category, Map<String, Object> attributeFilters, Pageable pageable) {
+        List<Criteria> criteriaList = buildAttributeCriteria(category, attributeFilters);
+
+        // Execute query with pagination, loading summaries only
+        List<ProductSummary> products = mongoTemplate.find(summaryQuery(criteriaList).with(pageable), ProductSummary.class);
+        
+        // Get total count for pagination
+        Query countQuery = new Query();
+        if (!criteriaList.isEmpty()) {
+            countQuery.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
+        }
+        long total = mongoTemplate.count(countQuery, Product.class);
+
+        return new PageImpl<>(products, pageable, total);
+    }
+
+    @Override
+    public List<ProductSummary> findActiveProductsAfter(String category, Map<String, Object> attributeFilters, Sort sort,
+                                                        Map<String, Object> afterKeys, int limit) {
+        List<Criteria> criteriaList = buildListingCriteria(category, attributeFilters);
+
+        // Sort on the requested fields, with _id as the tiebreaker that makes the order total
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String fieldName = toFieldName(order.getProperty());
+            orders.add(new Sort.Order(order.getDirection(), fieldName));
+            if (fieldName.equals(ID_FIELD)) {
+                break;
+            }
+        }
+        if (orders.isEmpty() || !orders.get(orders.size() - 1).getProperty().equals(ID_FIELD)) {
+            orders.add(Sort.Order.asc(ID_FIELD));
+        }
+
+        if (afterKeys != null) {
+            criteriaList.add(keysetCriteria(orders, afterKeys));
+        }
+
+        Query query = summaryQuery(criteriaList);
+        query.with(Sort.by(orders)).limit(limit);
+        return mongoTemplate.find(query, ProductSummary.class);
+    }
+
+    @Override
+    public long countActiveProducts(String category, Map<String, Object> attributeFilters, int limit) {
+        List<Criteria> criteriaList = buildListingCriteria(category, attributeFilters);
+        Query query = new Query(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        return mongoTemplate.count(query, Product.class);
+    }
+
+    @Override
+    public void incrementRatingStats(String productId, int rating) {
+        String histogramField = "ratingHistogram." + rating;
+
+        // Pipeline update so the average is computed from the incremented counters in the same write
+        Document incrementCounters = new Document("$set", new Document()
+                .append("ratingSum", new Document("$add", List.of(new Document("$ifNull", List.of("$ratingSum", 0)), rating)))
+                .append("totalReviews", new Document("$add", List.of(new Document("$ifNull", List.of("$totalReviews", 0)), 1)))
+                .append(histogramField, new Document("$add", List.of(new Document("$ifNull", List.of("$" + histogramField, 0)), 1)))
+                .append("updatedAt", "$$NOW"));
+        Document computeAverage = new Document("$set", new Document("averageRating",
+                new Document("$divide", List.of("$ratingSum", "$totalReviews"))));
+
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+                context -> incrementCounters,
+                context -> computeAverage
+        ));
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(productId)), update, Product.class);
+    }
+
+    @Override
+    public Optional<Product> adjustStock(String productId, String variationSku, int delta) {
+        Query query = stockQuery(productId, variationSku, delta < 0 ? -delta : null);
+        query.fields().include("stockQuantity", "variations.sku", "variations.stockQuantity");
+
+        Update update = new Update()
+                .inc(stockField(variationSku), delta)
+                .currentDate("updatedAt");
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Product.class));
+    }
+
+    /**
+     * One aggregation for all the special product strips: a $match on the union of the flags
+     * (each branch served by its partial flag index), the summary projection, then a $facet
+     * with one limited sub-pipeline per flag.
+     */
+    @Override
+    public Map<String, List<ProductSummary>> findSpecialProductGroups(int limitPerType) {
+        List<Criteria> anyFlag = new ArrayList<>();
+        for (String property : SPECIAL_PROPERTIES) {
+            anyFlag.add(Criteria.where("isActive").is(true).and("specialProperties." + property).is(true));
+        }
+
+        Document facets = new Document();
+        for (String property : SPECIAL_PROPERTIES) {
+            facets.append(property, List.of(
+                    new Document("$match", new Document("specialProperties." + property, true)),
+                    new Document("$limit", limitPerType)));
+        }
 
-        // Add active filter (isActive is true or doesn't exist)
-        Criteria activeCriteria = new Criteria().orOperator(
-                Criteria.where("isActive").is(true),
-                Criteria.where("isActive").exists(false),
-                Criteria.where("isActive").is(null)
+        List<AggregationOperation> pipeline = List.of(
+                Aggregation.match(new Criteria().orOperator(anyFlag.toArray(new Criteria[0]))),
+                context -> new Document("$project", SUMMARY_PROJECTION),
+                context -> new Document("$facet", facets)
         );
-        criteriaList.add(activeCriteria);
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(pipeline),
+                mongoTemplate.getCollectionName(Product.class), Document.class).getUniqueMappedResult();
+
+        Map<String, List<ProductSummary>> groups = new LinkedHashMap<>();
+        for (String property : SPECIAL_PROPERTIES) {
+            List<ProductSummary> summaries = new ArrayList<>();
+            if (result != null) {
+                for (Document document : result.getList(property, Document.class, List.of())) {
+                    summaries.add(mongoTemplate.getConverter().read(ProductSummary.class, document));
+                }
+            }
+            groups.put(property, summaries);
+        }
+        return groups;
+    }
+
+    @Override
+    public Optional<Product> updateFields(String productId, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(new Query(Criteria.where("id").is(productId)),
+                update, FindAndModifyOptions.options().returnNew(true), Product.class));
+    }
+
+    @Override
+    public Optional<Product> setStock(String productId, String variationSku, int stockQuantity) {
+        Update update = new Update()
+                .set(stockField(variationSku), stockQuantity)
+                .currentDate("updatedAt");
+        return Optional.ofNullable(mongoTemplate.findAndModify(stockQuery(productId, variationSku, null), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class));
+    }
+
+    // Matches the product (and the variation, so that variations.$ points at it) holding at least
+    // minStock items when minStock is set
+    private static Query stockQuery(String productId, String variationSku, Integer minStock) {
+        Criteria criteria = Criteria.where("id").is(productId);
+        if (variationSku == null) {
+            if (minStock != null) {
+                criteria.and("stockQuantity").gte(minStock);
+            }
+        } else {
+            Criteria variation = Criteria.where("sku").is(variationSku);
+            if (minStock != null) {
+                variation.and("stockQuantity").gte(minStock);
+            }
+            criteria.and("variations").elemMatch(variation);
+        }
+        return new Query(criteria);
+    }
+
+    private static String stockField(String variationSku) {
+        return variationSku == null ? "stockQuantity" : "variations.$.stockQuantity";
+    }
+
+    // Query restricted to the ProductSummary fields
+    private static Query summaryQuery(List<Criteria> criteriaList) {
+        Document queryObject = criteriaList.isEmpty() ? new Document()
+                : new Criteria().andOperator(criteriaList.toArray(new Criteria[0])).getCriteriaObject();
+        return new BasicQuery(queryObject, Document.parse(ProductSummary.FIELDS));
+    }
+
+    // $project does not take the find form { $slice: 1 }, it needs the expression form
+    private static Document summaryProjection() {
+        Document projection = Document.parse(ProductSummary.FIELDS);
+        projection.put("images", new Document("$slice", List.of("$images", 1)));
+        return projection;
+    }
+
+    // Same matching as findActiveProducts, findByCategoryWithActiveFilter and findByAttributeFilters
+    private List<Criteria> buildListingCriteria(String category, Map<String, Object> attributeFilters) {
+        if (attributeFilters != null && !attributeFilters.isEmpty()) {
+            return buildAttributeCriteria(category, attributeFilters);
+        }
+        List<Criteria> criteriaList = new ArrayList<>();
+        criteriaList.add(Criteria.where("isActive").is(true));
+        if (category != null && !category.isEmpty()) {
+            criteriaList.add(Criteria.where("category").is(category));
+        }
+        return criteriaList;
+    }
+
+    /**
+     * Matches the documents that sort strictly after the given keys. For sort fields f1..fn
+     * (the last one being _id) this is: f1 after k1, or f1 = k1 and f2 after k2, and so on.
+     * Missing values sort first in ascending order and last in descending order, like Mongo does.
+     */
+    private Criteria keysetCriteria(List<Sort.Order> orders, Map<String, Object> afterKeys) {
+        List<Criteria> alternatives = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            List<Criteria> segment = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                String fieldName = orders.get(j).getProperty();
+                segment.add(Criteria.where(fieldName).is(afterKeys.get(fieldName)));
+            }
+
+            Sort.Order order = orders.get(i);
+            Object key = afterKeys.get(order.getProperty());
+            Criteria after;
+            if (key == null) {
+                // Nothing sorts after a missing value in descending order
+                if (order.isDescending()) {
+                    continue;
+                }
+                after = Criteria.where(order.getProperty()).ne(null);
+            } else if (order.isAscending()) {
+                after = Criteria.where(order.getProperty()).gt(key);
+            } else {
+                after = new Criteria().orOperator(
+                        Criteria.where(order.getProperty()).lt(key),
+                        Criteria.where(order.getProperty()).is(null)
+                );
+            }
+            segment.add(after);
+            alternatives.add(new Criteria().andOperator(segment.toArray(new Criteria[0])));
+        }
+        if (alternatives.isEmpty()) {
+            // Positioned after the last document
+            return Criteria.where(ID_FIELD).exists(false);
+        }
+        return new Criteria().orOperator(alternatives.toArray(new Criteria[0]));
+    }
+
+    private static String toFieldName(String property) {
+        return property.equals("id") ? ID_FIELD : property;
+    }
+
+    private List<Criteria> buildAttributeCriteria(String category, Map<String, Object> attributeFilters) {
+        List<Criteria> criteriaList = new ArrayList<>();
+
+        // Add active filter (isActive is always set, see ProductActiveFlagBackfill)
+        criteriaList.add(Criteria.where("isActive").is(true));
 
         // Add category filter if provided
         if (category != null && !category.trim().isEmpty()) {
@@ -42,6 +324,8 @@ public class CustomProductRepositoryImpl implements CustomProductRepository {
 
         // Process attribute filters
         if (attributeFilters != null && !attributeFilters.isEmpty()) {
+            boolean priceFilterRequested = false;
+
             for (Map.Entry<String, Object> entry : attributeFilters.entrySet()) {
                 String attributeName = entry.getKey();
                 Object attributeValue = entry.getValue();
@@ -51,8 +335,9 @@ public class CustomProductRepositoryImpl implements CustomProductRepository {
                 }
 
                 // Handle different attribute types
-                if (attributeName.equals("price")) {
-                    handlePriceFilter(criteriaList, attributeFilters);
+                if (attributeName.equals("price") || attributeName.equals("minPrice") || attributeName.equals("maxPrice")) {
+                    // Price bounds are applied once after the loop
+                    priceFilterRequested = true;
                 } else if (attributeName.endsWith("_min") || attributeName.endsWith("_max")) {
                     handleRangeFilter(criteriaList, attributeName, attributeValue);
                 } else {
@@ -91,27 +376,13 @@ public class CustomProductRepositoryImpl implements CustomProductRepository {
                     }
                 }
             }
-        }
 
-        // Combine all criteria
-        if (!criteriaList.isEmpty()) {
-            query.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
-        }
-
-        // Apply pagination
-        query.with(pageable);
-
-        // Execute query
-        List<Product> products = mongoTemplate.find(query, Product.class);
-        
-        // Get total count for pagination
-        Query countQuery = new Query();
-        if (!criteriaList.isEmpty()) {
-            countQuery.addCriteria(new Criteria().andOperator(criteriaList.toArray(new Criteria[0])));
+            if (priceFilterRequested) {
+                handlePriceFilter(criteriaList, attributeFilters);
+            }
         }
-        long total = mongoTemplate.count(countQuery, Product.class);
 
-        return new PageImpl<>(products, pageable, total);
+        return criteriaList;
     }
 
     private void handlePriceFilter(List<Criteria> criteriaList, Map<String, Object> attributeFilters) {
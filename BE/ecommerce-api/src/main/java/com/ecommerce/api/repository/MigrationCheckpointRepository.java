@@ -0,0 +1,9 @@
+package com.ecommerce.api.repository;
+
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MigrationCheckpointRepository extends MongoRepository<MigrationCheckpoint, String> {
+}
@@ -1,8 +1,10 @@
 package com.ecommerce.api.repository;
 
+import com.ecommerce.api.dto.OrderStatusTotals;
 import com.ecommerce.api.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,16 +12,31 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    // Order responses read the user and the items. Single orders fetch both with joins, list
+    // queries join the user only, their items are batch loaded (@BatchSize on Order.orderItems)
+    // since fetch joining a collection would make Hibernate paginate in memory
+    @Override
+    @EntityGraph(attributePaths = {"user", "orderItems"})
+    Optional<Order> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Order> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
 
+    @EntityGraph(attributePaths = "user")
     Page<Order> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
     List<Order> findByStatus(Order.OrderStatus status);
 
+    @EntityGraph(attributePaths = "user")
     List<Order> findByStatusOrderByCreatedAtDesc(Order.OrderStatus status);
 
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
@@ -33,7 +50,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
     long countOrdersByUserId(@Param("userId") Long userId);
 
+    // One row per status, computed by the database
+    @Query("SELECT new com.ecommerce.api.dto.OrderStatusTotals(o.status, COUNT(o), SUM(o.totalAmount)) " +
+           "FROM Order o GROUP BY o.status")
+    List<OrderStatusTotals> aggregateTotalsByStatus();
+
     List<Order> findByUserId(Long userId);
 
+    @EntityGraph(attributePaths = "user")
     List<Order> findTop10ByOrderByCreatedAtDesc();
 }
@@ -1,6 +1,7 @@
 package com.ecommerce.api.repository;
 
 import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,57 +20,59 @@ public interface ProductRepository extends MongoRepository<Product, String>, Cus
     List<Product> findByIsActiveTrue();
     Page<Product> findByIsActiveTrue(Pageable pageable);
     
-    // Query to get products where isActive is true OR null (for backward compatibility)
-    @Query("{ $or: [ { 'isActive': true }, { 'isActive': { $exists: false } }, { 'isActive': null } ] }")
-    Page<Product> findActiveOrNullProducts(Pageable pageable);
-    
-    @Query("{ $or: [ { 'isActive': true }, { 'isActive': { $exists: false } }, { 'isActive': null } ] }")
-    List<Product> findActiveOrNullProductsList();
+    // isActive is always set (ProductActiveFlagBackfill), a plain equality can use the index
+    @Query(value = "{ 'isActive': true }", fields = ProductSummary.FIELDS)
+    Page<ProductSummary> findActiveProducts(Pageable pageable);
     
     Optional<Product> findBySkuAndIsActiveTrue(String sku);
 
     // Category queries
-    List<Product> findByCategoryAndIsActiveTrue(String category);
+    @Query(fields = ProductSummary.FIELDS)
+    List<ProductSummary> findByCategoryAndIsActiveTrue(String category);
     List<Product> findBySubCategoryAndIsActiveTrue(String subCategory);
-    List<Product> findByCategoryAndSubCategoryAndIsActiveTrue(String category, String subCategory);
+    @Query(fields = ProductSummary.FIELDS)
+    List<ProductSummary> findByCategoryAndSubCategoryAndIsActiveTrue(String category, String subCategory);
 
     // Brand queries
-    List<Product> findByBrandAndIsActiveTrue(String brand);
+    @Query(fields = ProductSummary.FIELDS)
+    List<ProductSummary> findByBrandAndIsActiveTrue(String brand);
 
     // Search queries
-    @Query("{ 'isActive': true, $or: [ " +
+    @Query(value = "{ 'isActive': true, $or: [ " +
            "{ 'name': { $regex: ?0, $options: 'i' } }, " +
            "{ 'description': { $regex: ?0, $options: 'i' } }, " +
            "{ 'brand': { $regex: ?0, $options: 'i' } }, " +
            "{ 'category': { $regex: ?0, $options: 'i' } }, " +
            "{ 'subCategory': { $regex: ?0, $options: 'i' } } " +
-           "] }")
-    Page<Product> findBySearchQuery(String query, Pageable pageable);
+           "] }", fields = ProductSummary.FIELDS)
+    Page<ProductSummary> findBySearchQuery(String query, Pageable pageable);
 
-    // Price range queries
-    List<Product> findByPriceBetweenAndIsActiveTrue(BigDecimal minPrice, BigDecimal maxPrice);
+    // Loads the products matched by the in-memory indexes
+    @Query(fields = ProductSummary.FIELDS)
+    Page<ProductSummary> findByIdIn(Collection<String> ids, Pageable pageable);
 
-    // Advanced filtering
-    @Query("{ $or: [ { 'category': { $exists: false } }, { 'category': null }, { 'category': ?0 } ] }, " +
-           "{ $or: [ { 'subCategory': { $exists: false } }, { 'subCategory': null }, { 'subCategory': ?1 } ] }, " +
-           "{ $or: [ { 'brand': { $exists: false } }, { 'brand': null }, { 'brand': ?2 } ] }, " +
-           "{ $or: [ { 'price': { $gte: ?3 } } ] }, " +
-           "{ $or: [ { 'price': { $lte: ?4 } } ] } " +
-           "] }")
-    Page<Product> findByFilters(String category, String subCategory, String brand, 
-                               BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+    @Query(fields = ProductSummary.FIELDS)
+    List<ProductSummary> findByIdIn(Collection<String> ids);
+
+    // Active products behind cart and order line items, loaded in one query
+    @Query(value = "{ '_id': { $in: ?0 }, 'isActive': true }", fields = Product.LINE_ITEM_FIELDS)
+    List<Product> findLineItemProductsByIdIn(Collection<String> ids);
+
+    // Price range queries (inclusive bounds, served by the price index)
+    @Query(value = "{ 'isActive': true, 'price': { $gte: ?0, $lte: ?1 } }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findByPriceBetweenAndIsActiveTrue(BigDecimal minPrice, BigDecimal maxPrice);
 
     // Stock queries
-    @Query("{ 'isActive': true, 'stockQuantity': { $lte: ?0 } }")
-    List<Product> findLowStockProducts(Integer threshold);
+    @Query(value = "{ 'isActive': true, 'stockQuantity': { $lte: ?0 } }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findLowStockProducts(Integer threshold);
 
     // Rating queries
-    @Query("{ 'isActive': true, 'averageRating': { $gte: ?0 } }")
-    List<Product> findTopRatedProducts(Double minRating, Pageable pageable);
+    @Query(value = "{ 'isActive': true, 'averageRating': { $gte: ?0 } }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findTopRatedProducts(Double minRating, Pageable pageable);
 
     // Featured products (can be based on various criteria - here using high rating and recent)
-    @Query("{ 'isActive': true, 'averageRating': { $gte: 4.0 } }")
-    List<Product> findFeaturedProducts(Pageable pageable);
+    @Query(value = "{ 'isActive': true, 'averageRating': { $gte: 4.0 } }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findFeaturedProducts(Pageable pageable);
 
     // Distinct value queries for filters
     @Query(value = "{ 'isActive': true, 'category': { $ne: null, $ne: '' } }", fields = "{ 'category': 1 }")
@@ -81,23 +85,27 @@ public interface ProductRepository extends MongoRepository<Product, String>, Cus
     @Query(value = "{ 'isActive': true, 'brand': { $ne: null, $ne: '' } }", fields = "{ 'brand': 1 }")
     List<Product> findDistinctBrandProducts();
 
+    // Rating counters only, for the rating summary
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'averageRating': 1, 'totalReviews': 1, 'ratingHistogram': 1 }")
+    Optional<Product> findRatingStatsById(String id);
+
     // Inventory management
     @Query("{ 'variations.sku': ?0 }")
     Optional<Product> findByVariationSku(String variationSku);
 
     // Category with active filter
-    @Query("{ 'category': ?0, $or: [ { 'isActive': true }, { 'isActive': { $exists: false } }, { 'isActive': null } ] }")
-    Page<Product> findByCategoryWithActiveFilter(String category, Pageable pageable);
+    @Query(value = "{ 'category': ?0, 'isActive': true }", fields = ProductSummary.FIELDS)
+    Page<ProductSummary> findByCategoryWithActiveFilter(String category, Pageable pageable);
 
     // Special properties queries
-    @Query("{ 'isActive': true, 'specialProperties.newArrival': true }")
-    List<Product> findBySpecialPropertiesNewArrivalTrueAndIsActiveTrue(Pageable pageable);
+    @Query(value = "{ 'isActive': true, 'specialProperties.newArrival': true }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findBySpecialPropertiesNewArrivalTrueAndIsActiveTrue(Pageable pageable);
 
-    @Query("{ 'isActive': true, 'specialProperties.hasOffer': true }")
-    List<Product> findBySpecialPropertiesHasOfferTrueAndIsActiveTrue(Pageable pageable);
+    @Query(value = "{ 'isActive': true, 'specialProperties.hasOffer': true }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findBySpecialPropertiesHasOfferTrueAndIsActiveTrue(Pageable pageable);
 
-    @Query("{ 'isActive': true, 'specialProperties.bestSeller': true }")
-    List<Product> findBySpecialPropertiesBestSellerTrueAndIsActiveTrue(Pageable pageable);
+    @Query(value = "{ 'isActive': true, 'specialProperties.bestSeller': true }", fields = ProductSummary.FIELDS)
+    List<ProductSummary> findBySpecialPropertiesBestSellerTrueAndIsActiveTrue(Pageable pageable);
 
     // Combined special properties queries
     @Query("{ 'isActive': true, $or: [ " +
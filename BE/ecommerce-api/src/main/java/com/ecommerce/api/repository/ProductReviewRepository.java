@@ -0,0 +1,14 @@
+package com.ecommerce.api.repository;
+
+import com.ecommerce.api.entity.ProductReview;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductReviewRepository extends MongoRepository<ProductReview, String> {
+
+    // Sorted by the pageable, newest first is served by the (productId, date desc) index
+    Page<ProductReview> findByProductIdAndIsApprovedTrue(String productId, Pageable pageable);
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.api.repository;
+
+import com.ecommerce.api.entity.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    // Atomically adds the deltas to a bucket, creating it when missing
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups (granularity, bucket_start, category, order_count, units_sold, revenue, updated_at) " +
+            "VALUES (:granularity, :bucketStart, :category, :orderCount, :unitsSold, :revenue, now()) " +
+            "ON CONFLICT (granularity, bucket_start, category) DO UPDATE SET " +
+            "order_count = sales_rollups.order_count + EXCLUDED.order_count, " +
+            "units_sold = sales_rollups.units_sold + EXCLUDED.units_sold, " +
+            "revenue = sales_rollups.revenue + EXCLUDED.revenue, " +
+            "updated_at = now()", nativeQuery = true)
+    void addToBucket(@Param("granularity") String granularity,
+                     @Param("bucketStart") LocalDateTime bucketStart,
+                     @Param("category") String category,
+                     @Param("orderCount") long orderCount,
+                     @Param("unitsSold") long unitsSold,
+                     @Param("revenue") BigDecimal revenue);
+
+    // Recomputes every bucket of one granularity from the orders that are not cancelled
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups (granularity, bucket_start, category, order_count, units_sold, revenue, updated_at) " +
+            "SELECT :granularity, date_trunc(:unit, o.created_at), COALESCE(oi.product_category, :uncategorized), " +
+            "COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.subtotal), now() " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.status <> 'CANCELLED' " +
+            "GROUP BY 2, 3", nativeQuery = true)
+    int rebuildBuckets(@Param("granularity") String granularity,
+                       @Param("unit") String unit,
+                       @Param("uncategorized") String uncategorized);
+
+    @Query("SELECT r FROM SalesRollup r WHERE r.granularity = :granularity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart, r.category")
+    List<SalesRollup> findBuckets(@Param("granularity") SalesRollup.Granularity granularity,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    @Query("SELECT r FROM SalesRollup r WHERE r.granularity = :granularity AND r.category = :category " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<SalesRollup> findBuckets(@Param("granularity") SalesRollup.Granularity granularity,
+                                  @Param("category") String category,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+}
@@ -5,36 +5,36 @@ import com.ecommerce.api.dto.CartItemResponse;
 import com.ecommerce.api.dto.CartResponse;
 import com.ecommerce.api.dto.ProductResponse;
 import com.ecommerce.api.entity.CartItem;
-import com.ecommerce.api.entity.User;
-import com.ecommerce.api.repository.CartItemRepository;
-import com.ecommerce.api.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.stream.Collectors;
 
+// Not @Transactional: every cart_items access goes through CartStore, which writes in transactions
+// of its own, and an outer transaction would hold a second connection while it does
 @Service
-@Transactional
 public class CartService {
 
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
 
     @Autowired
-    private UserRepository userRepository;
+    private ProductService productService;
 
     @Autowired
-    private ProductService productService;
+    private FlashSaleStockService flashSaleStockService;
 
     public CartResponse getCartByUserId(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        Map<String, ProductResponse> products = loadProducts(cartItems);
         List<CartItemResponse> cartItemResponses = cartItems.stream()
-                .map(this::convertToCartItemResponse)
+                .map(cartItem -> convertToCartItemResponse(cartItem, products))
                 .collect(Collectors.toList());
 
         BigDecimal totalAmount = cartItemResponses.stream()
@@ -51,59 +51,24 @@ public class CartService {
 
     // Legacy method for backward compatibility
     public List<CartItem> getCartItems(Long userId) {
-        return cartItemRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        Collections.reverse(cartItems);
+        return cartItems;
     }
 
     public CartResponse addToCart(Long userId, CartItemRequest request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Check if product exists in MongoDB
-        Optional<ProductResponse> productOpt = productService.getProductById(request.getProductId());
-        if (productOpt.isEmpty()) {
-            throw new RuntimeException("Product not found");
-        }
-
-        ProductResponse product = productOpt.get();
-        
-        // Validate stock availability
-        if (request.getVariationSku() != null) {
-            // Check variation stock
-            boolean variationExists = product.getVariations() != null && 
-                product.getVariations().stream()
-                    .anyMatch(v -> v.getSku().equals(request.getVariationSku()) && 
-                                 v.getIsActive() && 
-                                 v.getStockQuantity() >= request.getQuantity());
-            
-            if (!variationExists) {
-                throw new RuntimeException("Product variation not available or insufficient stock");
-            }
-        } else {
-            // Check main product stock
-            if (product.getStockQuantity() < request.getQuantity()) {
+        // Flash-sale SKUs are checked against their in-memory counter without reading the product
+        OptionalLong flashSaleStock = flashSaleStockService.available(request.getProductId(), request.getVariationSku());
+        if (flashSaleStock.isPresent()) {
+            if (flashSaleStock.getAsLong() < request.getQuantity()) {
                 throw new RuntimeException("Insufficient stock for the requested quantity");
             }
-        }
-
-        // Check if item already exists in cart (including variation)
-        Optional<CartItem> existingCartItem = cartItemRepository
-                .findByUserIdAndProductIdAndVariationSku(userId, request.getProductId(), request.getVariationSku());
-
-        CartItem cartItem;
-        if (existingCartItem.isPresent()) {
-            // Update quantity if item already exists
-            cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + request.getQuantity());
         } else {
-            // Create new cart item
-            cartItem = new CartItem();
-            cartItem.setUser(user);
-            cartItem.setProductId(request.getProductId());
-            cartItem.setVariationSku(request.getVariationSku());
-            cartItem.setQuantity(request.getQuantity());
+            validateProductStock(request.getProductId(), request.getVariationSku(), request.getQuantity());
         }
 
-        cartItemRepository.save(cartItem);
+        // Adds to the existing line of the product (including variation) or creates one
+        cartStore.addItem(userId, request.getProductId(), request.getVariationSku(), request.getQuantity());
         return getCartByUserId(userId);
     }
 
@@ -114,103 +79,52 @@ public class CartService {
             Integer quantity = Integer.valueOf(request.get("quantity").toString());
             String variationSku = request.get("variationSku") != null ? request.get("variationSku").toString() : null;
 
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            // Check if product exists in MongoDB
-            Optional<ProductResponse> productOpt = productService.getProductById(productId);
-            if (productOpt.isEmpty()) {
-                return Optional.empty();
-            }
-
-            ProductResponse product = productOpt.get();
-            
-            // Validate stock availability
-            if (variationSku != null) {
-                // Check variation stock
-                boolean variationExists = product.getVariations() != null && 
-                    product.getVariations().stream()
-                        .anyMatch(v -> v.getSku().equals(variationSku) && 
-                                     v.getIsActive() && 
-                                     v.getStockQuantity() >= quantity);
-                
-                if (!variationExists) {
-                    return Optional.empty();
-                }
-            } else {
-                // Check main product stock
-                if (product.getStockQuantity() < quantity) {
+            // Same checks as addToCart(userId, request), any failure is a bad request
+            OptionalLong flashSaleStock = flashSaleStockService.available(productId, variationSku);
+            if (flashSaleStock.isPresent()) {
+                if (flashSaleStock.getAsLong() < quantity) {
                     return Optional.empty();
                 }
-            }
-
-            // Check if item already exists in cart (including variation)
-            Optional<CartItem> existingCartItem = cartItemRepository.findByUserIdAndProductIdAndVariationSku(userId, productId, variationSku);
-
-            CartItem cartItem;
-            if (existingCartItem.isPresent()) {
-                // Update quantity if item already exists
-                cartItem = existingCartItem.get();
-                cartItem.setQuantity(cartItem.getQuantity() + quantity);
             } else {
-                // Create new cart item
-                cartItem = new CartItem();
-                cartItem.setUser(user);
-                cartItem.setProductId(productId);
-                cartItem.setVariationSku(variationSku);
-                cartItem.setQuantity(quantity);
+                validateProductStock(productId, variationSku, quantity);
             }
 
-            CartItem savedCartItem = cartItemRepository.save(cartItem);
-            return Optional.of(savedCartItem);
+            // Adds to the existing line of the product (including variation) or creates one
+            return Optional.of(cartStore.addItem(userId, productId, variationSku, quantity));
         } catch (Exception e) {
             return Optional.empty();
         }
     }
 
     public CartResponse updateCartItem(Long userId, Long cartItemId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findByIdAndUserId(cartItemId, userId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
-        if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
-        } else {
-            cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
+        // Quantity <= 0 removes the item
+        if (!cartStore.updateQuantity(userId, cartItemId, quantity)) {
+            throw new RuntimeException("Cart item not found");
         }
 
         return getCartByUserId(userId);
     }
 
     public CartResponse removeFromCart(Long userId, Long cartItemId) {
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
-        // Verify the cart item belongs to the user
-        if (!cartItem.getUser().getId().equals(userId)) {
-            throw new RuntimeException("Unauthorized access to cart item");
+        // Only finds the item in the user's own cart
+        if (cartStore.removeItems(userId, List.of(cartItemId)) == 0) {
+            throw new RuntimeException("Cart item not found");
         }
 
-        cartItemRepository.delete(cartItem);
         return getCartByUserId(userId);
     }
 
     public boolean removeFromCart(Long id) {
-        Optional<CartItem> optionalCartItem = cartItemRepository.findById(id);
-        if (optionalCartItem.isPresent()) {
-            cartItemRepository.delete(optionalCartItem.get());
-            return true;
-        }
-        return false;
+        Optional<Long> userId = cartStore.findOwner(id);
+        return userId.isPresent() && cartStore.removeItems(userId.get(), List.of(id)) > 0;
     }
 
     public void clearCart(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
-        cartItemRepository.deleteAll(cartItems);
+        cartStore.clear(userId);
     }
 
     public Integer getCartItemCount(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        List<CartItem> cartItems = cartStore.getItems(userId);
         return cartItems.stream()
                 .mapToInt(CartItem::getQuantity)
                 .sum();
@@ -227,92 +141,91 @@ public class CartService {
     }
 
     public boolean validateCartStock(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
-        
-        for (CartItem cartItem : cartItems) {
-            Optional<ProductResponse> productOpt = productService.getProductById(cartItem.getProductId());
-            if (productOpt.isEmpty()) {
-                return false; // Product not found
-            }
-            
-            ProductResponse product = productOpt.get();
-            
-            if (cartItem.getVariationSku() != null) {
-                // Check variation stock
-                boolean hasStock = product.getVariations() != null && 
-                    product.getVariations().stream()
-                        .anyMatch(v -> v.getSku().equals(cartItem.getVariationSku()) && 
-                                     v.getIsActive() && 
-                                     v.getStockQuantity() >= cartItem.getQuantity());
-                if (!hasStock) {
-                    return false;
-                }
-            } else {
-                // Check main product stock
-                if (product.getStockQuantity() < cartItem.getQuantity()) {
-                    return false;
-                }
-            }
-        }
-        
-        return true;
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        Map<String, ProductResponse> products = loadProducts(cartItems);
+
+        return cartItems.stream()
+                .noneMatch(cartItem -> isOutOfStock(cartItem, products.get(cartItem.getProductId())));
     }
 
     public List<CartItemResponse> getOutOfStockItems(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
-        
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        Map<String, ProductResponse> products = loadProducts(cartItems);
+
         return cartItems.stream()
-                .filter(cartItem -> {
-                    Optional<ProductResponse> productOpt = productService.getProductById(cartItem.getProductId());
-                    if (productOpt.isEmpty()) {
-                        return true; // Consider missing products as out of stock
-                    }
-                    
-                    ProductResponse product = productOpt.get();
-                    
-                    if (cartItem.getVariationSku() != null) {
-                        // Check variation stock
-                        return product.getVariations() == null || 
-                            product.getVariations().stream()
-                                .noneMatch(v -> v.getSku().equals(cartItem.getVariationSku()) && 
-                                             v.getIsActive() && 
-                                             v.getStockQuantity() >= cartItem.getQuantity());
-                    } else {
-                        // Check main product stock
-                        return product.getStockQuantity() < cartItem.getQuantity();
-                    }
-                })
-                .map(this::convertToCartItemResponse)
+                .filter(cartItem -> isOutOfStock(cartItem, products.get(cartItem.getProductId())))
+                .map(cartItem -> convertToCartItemResponse(cartItem, products))
                 .collect(Collectors.toList());
     }
 
     public CartResponse removeOutOfStockItems(Long userId) {
-        List<CartItem> outOfStockItems = cartItemRepository.findByUserId(userId).stream()
-                .filter(cartItem -> {
-                    Optional<ProductResponse> productOpt = productService.getProductById(cartItem.getProductId());
-                    if (productOpt.isEmpty()) {
-                        return true;
-                    }
-                    
-                    ProductResponse product = productOpt.get();
-                    
-                    if (cartItem.getVariationSku() != null) {
-                        return product.getVariations() == null || 
-                            product.getVariations().stream()
-                                .noneMatch(v -> v.getSku().equals(cartItem.getVariationSku()) && 
-                                             v.getIsActive() && 
-                                             v.getStockQuantity() >= cartItem.getQuantity());
-                    } else {
-                        return product.getStockQuantity() < cartItem.getQuantity();
-                    }
-                })
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        Map<String, ProductResponse> products = loadProducts(cartItems);
+
+        List<CartItem> outOfStockItems = cartItems.stream()
+                .filter(cartItem -> isOutOfStock(cartItem, products.get(cartItem.getProductId())))
                 .collect(Collectors.toList());
-        
-        cartItemRepository.deleteAll(outOfStockItems);
+
+        cartStore.removeItems(userId, outOfStockItems.stream().map(CartItem::getId).collect(Collectors.toList()));
         return getCartByUserId(userId);
     }
 
-    private CartItemResponse convertToCartItemResponse(CartItem cartItem) {
+    private void validateProductStock(String productId, String variationSku, Integer quantity) {
+        // Check if product exists in MongoDB
+        Optional<ProductResponse> productOpt = productService.getProductById(productId);
+        if (productOpt.isEmpty()) {
+            throw new RuntimeException("Product not found");
+        }
+
+        ProductResponse product = productOpt.get();
+        
+        // Validate stock availability
+        if (variationSku != null) {
+            // Check variation stock
+            boolean variationExists = product.getVariations() != null && 
+                product.getVariations().stream()
+                    .anyMatch(v -> v.getSku().equals(variationSku) && 
+                                 v.getIsActive() && 
+                                 v.getStockQuantity() >= quantity);
+            
+            if (!variationExists) {
+                throw new RuntimeException("Product variation not available or insufficient stock");
+            }
+        } else {
+            // Check main product stock
+            if (product.getStockQuantity() < quantity) {
+                throw new RuntimeException("Insufficient stock for the requested quantity");
+            }
+        }
+    }
+
+    // Products of all the cart items in one MongoDB query, keyed by product id
+    private Map<String, ProductResponse> loadProducts(List<CartItem> cartItems) {
+        return productService.getProductsByIds(cartItems.stream()
+                .map(CartItem::getProductId)
+                .collect(Collectors.toSet()));
+    }
+
+    // Missing products count as out of stock
+    private boolean isOutOfStock(CartItem cartItem, ProductResponse product) {
+        if (product == null) {
+            return true;
+        }
+
+        if (cartItem.getVariationSku() != null) {
+            // Check variation stock
+            return product.getVariations() == null ||
+                product.getVariations().stream()
+                    .noneMatch(v -> v.getSku().equals(cartItem.getVariationSku()) &&
+                                 v.getIsActive() &&
+                                 v.getStockQuantity() >= cartItem.getQuantity());
+        } else {
+            // Check main product stock
+            return product.getStockQuantity() < cartItem.getQuantity();
+        }
+    }
+
+    private CartItemResponse convertToCartItemResponse(CartItem cartItem, Map<String, ProductResponse> products) {
         CartItemResponse response = new CartItemResponse();
         response.setId(cartItem.getId());
         response.setProductId(cartItem.getProductId());
@@ -320,10 +233,9 @@ public class CartService {
         response.setQuantity(cartItem.getQuantity());
         response.setCreatedAt(cartItem.getCreatedAt());
 
-        // Fetch product details from MongoDB
-        Optional<ProductResponse> productOpt = productService.getProductById(cartItem.getProductId());
-        if (productOpt.isPresent()) {
-            ProductResponse product = productOpt.get();
+        // Product details from MongoDB, resolved in one batch for the whole cart
+        ProductResponse product = products.get(cartItem.getProductId());
+        if (product != null) {
             response.setProduct(product);
             
             // If there's a variation SKU, find and set the selected variation
@@ -0,0 +1,262 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.CartItem;
+import com.ecommerce.api.repository.CartItemRepository;
+import com.ecommerce.api.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Write-behind cache of the active carts in front of CartItemRepository.
+ *
+ * A cart is loaded from cart_items on first access and then served from memory. New lines are
+ * inserted and committed right away, since the client addresses them by id, but quantity
+ * changes and removals only mark the line dirty: repeated changes to a line coalesce into one
+ * write, and dirty carts are flushed together every app.cart.flush-interval-ms and on shutdown.
+ * A crash loses at most the changes of the last flush interval. Carts idle for
+ * app.cart.idle-eviction-ms are dropped from memory once they have been flushed.
+ *
+ * All access to cart_items has to go through this class, otherwise the cached carts go stale.
+ */
+@Component
+public class CartStore {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.cart.idle-eviction-ms:1800000}")
+    private long idleEvictionMs;
+
+    private final ConcurrentHashMap<Long, CachedCart> carts = new ConcurrentHashMap<>();
+
+    // Lines of the cart in insertion order, as detached copies
+    public List<CartItem> getItems(Long userId) {
+        return withCart(userId, cart -> {
+            List<CartItem> items = new ArrayList<>(cart.lines.size());
+            for (CartItem line : cart.lines.values()) {
+                items.add(copy(line));
+            }
+            return items;
+        });
+    }
+
+    public Optional<CartItem> getItem(Long userId, Long cartItemId) {
+        return withCart(userId, cart -> Optional.ofNullable(cart.lines.get(cartItemId)).map(CartStore::copy));
+    }
+
+    /**
+     * Adds quantity to the line of the product (and variation), creating the line when the cart
+     * does not have it yet. Only a new line needs a database write. Must not be called inside a
+     * transaction: the new row has to be committed by the time this returns.
+     */
+    public CartItem addItem(Long userId, String productId, String variationSku, int quantity) {
+        return withCart(userId, cart -> {
+            for (CartItem line : cart.lines.values()) {
+                if (line.getProductId().equals(productId) && Objects.equals(line.getVariationSku(), variationSku)) {
+                    line.setQuantity(line.getQuantity() + quantity);
+                    cart.dirtyIds.add(line.getId());
+                    return copy(line);
+                }
+            }
+
+            // Callers hold no transaction (CartService is not @Transactional), so the row is committed
+            // on a single connection before the line is cached and a later failure of the caller
+            // cannot leave a cached line the table lacks
+            CartItem savedCartItem = new TransactionTemplate(transactionManager).execute(status -> {
+                if (!userRepository.existsById(userId)) {
+                    throw new RuntimeException("User not found");
+                }
+                CartItem cartItem = new CartItem();
+                cartItem.setUser(userRepository.getReferenceById(userId));
+                cartItem.setProductId(productId);
+                cartItem.setVariationSku(variationSku);
+                cartItem.setQuantity(quantity);
+                return cartItemRepository.save(cartItem);
+            });
+
+            CartItem line = copy(savedCartItem);
+            cart.lines.put(line.getId(), line);
+            return copy(line);
+        });
+    }
+
+    // Sets the quantity of a line, a quantity <= 0 removes it. False when the cart has no such line
+    public boolean updateQuantity(Long userId, Long cartItemId, int quantity) {
+        if (quantity <= 0) {
+            return removeItems(userId, List.of(cartItemId)) > 0;
+        }
+        return withCart(userId, cart -> {
+            CartItem line = cart.lines.get(cartItemId);
+            if (line == null) {
+                return false;
+            }
+            line.setQuantity(quantity);
+            cart.dirtyIds.add(cartItemId);
+            return true;
+        });
+    }
+
+    // Returns the number of lines removed
+    public int removeItems(Long userId, Collection<Long> cartItemIds) {
+        return withCart(userId, cart -> removeLines(cart, cartItemIds));
+    }
+
+    public void clear(Long userId) {
+        withCart(userId, cart -> removeLines(cart, new ArrayList<>(cart.lines.keySet())));
+    }
+
+    // Owner of a cart line, for callers that only know the line id
+    public Optional<Long> findOwner(Long cartItemId) {
+        for (Map.Entry<Long, CachedCart> entry : carts.entrySet()) {
+            CachedCart cart = entry.getValue();
+            synchronized (cart) {
+                if (!cart.evicted && cart.lines.containsKey(cartItemId)) {
+                    return Optional.of(entry.getKey());
+                }
+            }
+        }
+        return cartItemRepository.findById(cartItemId).map(cartItem -> cartItem.getUser().getId());
+    }
+
+    /**
+     * Writes the pending changes of every dirty cart in one transaction and drops idle carts.
+     * When the write fails the changes stay pending and are retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        Map<CachedCart, PendingWrites> drained = new HashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        Set<Long> deletedIds = new HashSet<>();
+
+        for (Map.Entry<Long, CachedCart> entry : carts.entrySet()) {
+            CachedCart cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.dirtyIds.isEmpty() && cart.deletedIds.isEmpty()) {
+                    if (now - cart.lastAccess > idleEvictionMs) {
+                        cart.evicted = true;
+                        carts.remove(entry.getKey(), cart);
+                    }
+                    continue;
+                }
+                PendingWrites writes = new PendingWrites(new HashSet<>(cart.dirtyIds), new HashSet<>(cart.deletedIds));
+                for (Long cartItemId : writes.dirtyIds) {
+                    quantities.put(cartItemId, cart.lines.get(cartItemId).getQuantity());
+                }
+                deletedIds.addAll(writes.deletedIds);
+                cart.dirtyIds.clear();
+                cart.deletedIds.clear();
+                drained.put(cart, writes);
+            }
+        }
+
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                List<CartItem> cartItems = cartItemRepository.findAllById(quantities.keySet());
+                for (CartItem cartItem : cartItems) {
+                    cartItem.setQuantity(quantities.get(cartItem.getId()));
+                }
+                cartItemRepository.saveAll(cartItems);
+                if (!deletedIds.isEmpty()) {
+                    cartItemRepository.deleteAllByIdInBatch(deletedIds);
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Error flushing carts, retrying on the next flush: " + e.getMessage());
+            drained.forEach((cart, writes) -> {
+                synchronized (cart) {
+                    for (Long cartItemId : writes.dirtyIds) {
+                        if (cart.lines.containsKey(cartItemId)) {
+                            cart.dirtyIds.add(cartItemId);
+                        }
+                    }
+                    cart.deletedIds.addAll(writes.deletedIds);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Runs the action with the cart's lock held, retrying when the cart was evicted in between
+    private <T> T withCart(Long userId, Function<CachedCart, T> action) {
+        while (true) {
+            CachedCart cart = carts.computeIfAbsent(userId, this::load);
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    // Must be called with the cart's lock held
+    private static int removeLines(CachedCart cart, Collection<Long> cartItemIds) {
+        int removed = 0;
+        for (Long cartItemId : cartItemIds) {
+            if (cart.lines.remove(cartItemId) != null) {
+                cart.dirtyIds.remove(cartItemId);
+                cart.deletedIds.add(cartItemId);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private CachedCart load(Long userId) {
+        CachedCart cart = new CachedCart();
+        for (CartItem cartItem : cartItemRepository.findByUserId(userId)) {
+            CartItem line = copy(cartItem);
+            cart.lines.put(line.getId(), line);
+        }
+        return cart;
+    }
+
+    // Detached copy without the user, lines must not hold on to a persistence context
+    private static CartItem copy(CartItem cartItem) {
+        return new CartItem(cartItem.getId(), null, cartItem.getProductId(), cartItem.getVariationSku(),
+                cartItem.getQuantity(), cartItem.getCreatedAt());
+    }
+
+    // Guarded by its own monitor
+    private static class CachedCart {
+        private final Map<Long, CartItem> lines = new LinkedHashMap<>();
+        private final Set<Long> dirtyIds = new HashSet<>();
+        private final Set<Long> deletedIds = new HashSet<>();
+        private long lastAccess = System.currentTimeMillis();
+        private boolean evicted;
+    }
+
+    private static class PendingWrites {
+        private final Set<Long> dirtyIds;
+        private final Set<Long> deletedIds;
+
+        private PendingWrites(Set<Long> dirtyIds, Set<Long> deletedIds) {
+            this.dirtyIds = dirtyIds;
+            this.deletedIds = deletedIds;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductVariation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Flash-sale mode: the available stock of the products on offer (SpecialProperties.hasOffer) and
+ * of their variations is pinned in memory, in striped counters, so the hot SKUs of a promotion
+ * are checked without reading the product document.
+ *
+ * MongoDB stays the source of truth. The counters are an admission filter in front of it:
+ * ProductService.adjustStock takes units from the counter before the guarded Mongo decrement and
+ * rejects sold out SKUs without a round trip, and the counters are reset from Mongo every
+ * app.flash-sale.reconcile-ms to correct any drift. Disabled unless app.flash-sale.enabled is set.
+ */
+@Service
+public class FlashSaleStockService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.flash-sale.enabled:false}")
+    private boolean enabled;
+
+    // stock key (productId or productId/variationSku) -> available units
+    private final Map<String, StripedStockCounter> counters = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    public boolean isPinned(String productId, String variationSku) {
+        return counters.containsKey(stockKey(productId, variationSku));
+    }
+
+    // Available units of a pinned SKU, empty when the SKU is not pinned
+    public OptionalLong available(String productId, String variationSku) {
+        StripedStockCounter counter = counters.get(stockKey(productId, variationSku));
+        return counter != null ? OptionalLong.of(counter.sum()) : OptionalLong.empty();
+    }
+
+    // Takes units from a pinned SKU's counter, false when not enough are left
+    public boolean tryTake(String productId, String variationSku, int quantity) {
+        StripedStockCounter counter = counters.get(stockKey(productId, variationSku));
+        return counter == null || counter.tryTake(quantity);
+    }
+
+    public void giveBack(String productId, String variationSku, int quantity) {
+        StripedStockCounter counter = counters.get(stockKey(productId, variationSku));
+        if (counter != null) {
+            counter.add(quantity);
+        }
+    }
+
+    // Stock was overwritten (admin stock update), the counter follows right away
+    public void reset(String productId, String variationSku, int stockQuantity) {
+        StripedStockCounter counter = counters.get(stockKey(productId, variationSku));
+        if (counter != null) {
+            counter.reset(stockQuantity);
+        }
+    }
+
+    /**
+     * Pins the SKUs currently on offer and resets every counter to the stock stored in MongoDB.
+     * Units taken from a counter whose Mongo decrement is still in flight are counted once more
+     * until the next reconcile, which can only let a request through to the guarded Mongo write.
+     */
+    @Scheduled(fixedDelayString = "${app.flash-sale.reconcile-ms:5000}")
+    public void reconcile() {
+        if (!enabled) {
+            counters.clear();
+            return;
+        }
+        try {
+            Query query = new Query(Criteria.where("specialProperties.hasOffer").is(true)
+                    .and("isActive").is(true));
+            query.fields().include("stockQuantity", "variations.sku", "variations.stockQuantity", "variations.isActive");
+
+            Set<String> pinned = new HashSet<>();
+            for (Product product : mongoTemplate.find(query, Product.class)) {
+                pin(pinned, stockKey(product.getId(), null), product.getStockQuantity());
+                if (product.getVariations() != null) {
+                    for (ProductVariation variation : product.getVariations()) {
+                        if (!Boolean.FALSE.equals(variation.getIsActive())) {
+                            pin(pinned, stockKey(product.getId(), variation.getSku()), variation.getStockQuantity());
+                        }
+                    }
+                }
+            }
+            counters.keySet().retainAll(pinned);
+        } catch (Exception e) {
+            System.err.println("Error reconciling flash-sale stock counters: " + e.getMessage());
+        }
+    }
+
+    private void pin(Set<String> pinned, String key, Integer stockQuantity) {
+        long stock = stockQuantity != null ? Math.max(stockQuantity, 0) : 0;
+        pinned.add(key);
+        counters.computeIfAbsent(key, k -> new StripedStockCounter()).reset(stock);
+    }
+
+    private static String stockKey(String productId, String variationSku) {
+        return variationSku != null ? productId + "/" + variationSku : productId;
+    }
+
+    /**
+     * Stock counter split over one cell per core. Each cell holds a share of the units and is
+     * only ever changed with a compare-and-set that never takes it below zero, so concurrent
+     * takes mostly land on different cells and never contend on a single word. Cells are spaced
+     * a cache line apart to avoid false sharing.
+     */
+    static final class StripedStockCounter {
+
+        // 8 longs = 64 bytes between two cells
+        private static final int PADDING = 8;
+
+        private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+
+        // Spreads the stock evenly over the cells
+        void reset(long stock) {
+            for (int i = 0; i < STRIPES; i++) {
+                cells.set(i * PADDING, stock / STRIPES + (i < stock % STRIPES ? 1 : 0));
+            }
+        }
+
+        void add(long quantity) {
+            cells.addAndGet(probe() * PADDING, quantity);
+        }
+
+        /**
+         * Takes quantity units starting at this thread's cell and moving on to the next ones when
+         * it runs dry. If all the cells together do not hold enough, the partial takes are put
+         * back and false is returned.
+         */
+        boolean tryTake(long quantity) {
+            if (quantity <= 0) {
+                return true;
+            }
+            int start = probe();
+            long[] taken = new long[STRIPES];
+            long remaining = quantity;
+            for (int i = 0; i < STRIPES && remaining > 0; i++) {
+                int stripe = (start + i) & (STRIPES - 1);
+                int index = stripe * PADDING;
+                long current = cells.get(index);
+                while (current > 0) {
+                    long take = Math.min(current, remaining);
+                    if (cells.compareAndSet(index, current, current - take)) {
+                        taken[stripe] = take;
+                        remaining -= take;
+                        break;
+                    }
+                    current = cells.get(index);
+                }
+            }
+            if (remaining == 0) {
+                return true;
+            }
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                if (taken[stripe] > 0) {
+                    cells.addAndGet(stripe * PADDING, taken[stripe]);
+                }
+            }
+            return false;
+        }
+
+        private static int probe() {
+            return ThreadLocalRandom.current().nextInt(STRIPES);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.HomepageResponse;
+import com.ecommerce.api.dto.ProductSummaryResponse;
+import com.ecommerce.api.dto.SpecialProductsResponse;
+import com.ecommerce.api.entity.HeroBanner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Precomputed homepage payload: hero banners, special products, featured products and categories.
+ *
+ * The payload only changes when products or banners are edited, so instead of running the reads
+ * on every visit it is built in the background, serialized to JSON once per locale, and swapped
+ * in as a whole through a volatile reference. Requests only look up a byte array. The snapshot
+ * is rebuilt every app.homepage.refresh-ms (banners are edited directly in MongoDB) and shortly
+ * after a ProductChangedEvent, bursts of product writes are coalesced into one rebuild.
+ */
+@Service
+public class HomepageSnapshotService {
+
+    private static final String DEFAULT_LOCALE = "en";
+
+    @Autowired
+    private HeroBannerService heroBannerService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.homepage.special-limit:5}")
+    private int specialLimit;
+
+    @Value("${app.homepage.featured-limit:10}")
+    private int featuredLimit;
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean stale;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        stale = true;
+    }
+
+    /**
+     * Serialized homepage for the locale. Locales without banners get the payload without
+     * banners. Empty only when no snapshot could be built yet.
+     */
+    public Optional<byte[]> getPayload(String locale) {
+        Snapshot current = snapshot != null ? snapshot : firstSnapshot();
+        if (current == null) {
+            return Optional.empty();
+        }
+        String key = locale == null || locale.trim().isEmpty() ? DEFAULT_LOCALE : locale;
+        return Optional.of(current.payloads.getOrDefault(key, current.withoutBanners));
+    }
+
+    // Requests arriving before the startup build wait for it instead of each building one
+    private synchronized Snapshot firstSnapshot() {
+        if (snapshot == null) {
+            refresh();
+        }
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${app.homepage.stale-check-ms:1000}")
+    public void refreshIfStale() {
+        if (stale) {
+            refresh();
+        }
+    }
+
+    /**
+     * Builds a new snapshot and swaps it in. When the build fails the previous snapshot keeps
+     * being served. Returns the number of locales in the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${app.homepage.refresh-ms:60000}", initialDelayString = "${app.homepage.refresh-ms:60000}")
+    public synchronized int refresh() {
+        // Cleared first, a write during the build marks the new snapshot stale again
+        stale = false;
+        try {
+            Map<String, List<ProductSummaryResponse>> special = productService.getAllSpecialProducts(specialLimit);
+            SpecialProductsResponse specialProducts = new SpecialProductsResponse(
+                    special.get("newArrivals"), special.get("productsWithOffers"), special.get("bestSellers"));
+            List<ProductSummaryResponse> featuredProducts = productService.getFeaturedProducts(featuredLimit);
+            List<String> categories = productService.getAllCategories();
+            LocalDateTime generatedAt = LocalDateTime.now();
+
+            // One read for every locale, the banners keep their sortOrder within a locale
+            Map<String, List<HeroBanner>> bannersByLocale = new LinkedHashMap<>();
+            bannersByLocale.put(DEFAULT_LOCALE, new ArrayList<>());
+            for (HeroBanner banner : heroBannerService.getAllActiveHeroBanners()) {
+                String locale = banner.getLocale() != null ? banner.getLocale() : DEFAULT_LOCALE;
+                bannersByLocale.computeIfAbsent(locale, l -> new ArrayList<>()).add(banner);
+            }
+
+            Map<String, byte[]> payloads = new HashMap<>();
+            for (Map.Entry<String, List<HeroBanner>> entry : bannersByLocale.entrySet()) {
+                payloads.put(entry.getKey(), objectMapper.writeValueAsBytes(new HomepageResponse(
+                        entry.getValue(), specialProducts, featuredProducts, categories, generatedAt)));
+            }
+            byte[] withoutBanners = objectMapper.writeValueAsBytes(new HomepageResponse(
+                    List.of(), specialProducts, featuredProducts, categories, generatedAt));
+
+            snapshot = new Snapshot(Map.copyOf(payloads), withoutBanners);
+            return payloads.size();
+        } catch (Exception e) {
+            // Not marked stale again, that would retry every stale-check-ms while MongoDB is down:
+            // the next periodic refresh (or product write) retries
+            System.err.println("Error building the homepage snapshot: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Immutable once published
+    private static final class Snapshot {
+        private final Map<String, byte[]> payloads;
+        private final byte[] withoutBanners;
+
+        private Snapshot(Map<String, byte[]> payloads, byte[] withoutBanners) {
+            this.payloads = payloads;
+            this.withoutBanners = withoutBanners;
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.ecommerce.api.service;
 
 import com.ecommerce.api.dto.OrderItemResponse;
 import com.ecommerce.api.dto.OrderResponse;
+import com.ecommerce.api.dto.OrderStatusTotals;
 import com.ecommerce.api.dto.ProductResponse;
 import com.ecommerce.api.entity.Order;
 import com.ecommerce.api.entity.OrderItem;
 import com.ecommerce.api.entity.ProductVariation;
+import com.ecommerce.api.entity.StockReservation;
 import com.ecommerce.api.entity.User;
 import com.ecommerce.api.repository.OrderRepository;
 import com.ecommerce.api.repository.UserRepository;
@@ -14,10 +16,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,14 +44,22 @@ public class OrderService {
     @Autowired
     private ProductService productService;
 
-    public Page<OrderResponse> getAllOrders(Pageable pageable) {
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    // includeProduct attaches the current product details to every item, batched in one MongoDB query
+    public Page<OrderResponse> getAllOrders(Pageable pageable, boolean includeProduct) {
         Page<Order> orders = orderRepository.findAll(pageable);
-        return orders.map(this::convertToOrderResponse);
+        Map<String, ProductResponse> products = loadProducts(orders.getContent(), includeProduct);
+        return orders.map(order -> convertToOrderResponse(order, products));
     }
 
-    public Optional<OrderResponse> getOrderById(Long id) {
+    public Optional<OrderResponse> getOrderById(Long id, boolean includeProduct) {
         Optional<Order> order = orderRepository.findById(id);
-        return order.map(this::convertToOrderResponse);
+        return order.map(o -> convertToOrderResponse(o, loadProducts(List.of(o), includeProduct)));
     }
 
     public Optional<OrderResponse> createOrder(Map<String, Object> orderRequest) {
@@ -51,6 +69,7 @@ public class OrderService {
             String billingAddress = (String) orderRequest.get("billingAddress");
             String paymentMethod = (String) orderRequest.get("paymentMethod");
             String notes = (String) orderRequest.get("notes");
+            String reservationId = orderRequest.get("reservationId") != null ? orderRequest.get("reservationId").toString() : null;
 
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> items = (List<Map<String, Object>>) orderRequest.get("items");
@@ -68,8 +87,28 @@ public class OrderService {
 
             BigDecimal totalAmount = BigDecimal.ZERO;
 
-            // Save order first to get ID
-            Order savedOrder = orderRepository.save(order);
+            // Units held for this checkout (POST /reservations/cart/{userId}) are used first, anything
+            // beyond them is taken out of the stock as each item is added
+            Map<String, StockReservation.Item> heldItems = new HashMap<>();
+            if (reservationId != null) {
+                StockReservation reservation = stockReservationService.claim(reservationId, userId)
+                        .orElseThrow(() -> new RuntimeException("Stock reservation not found or expired"));
+                for (StockReservation.Item item : reservation.getItems()) {
+                    heldItems.merge(stockKey(item.getProductId(), item.getVariationSku()),
+                            new StockReservation.Item(item.getProductId(), item.getVariationSku(), item.getQuantity()),
+                            (held, more) -> {
+                                held.setQuantity(held.getQuantity() + more.getQuantity());
+                                return held;
+                            });
+                }
+            }
+            List<StockReservation.Item> takenItems = new ArrayList<>();
+            settleStockOnCompletion(reservationId, heldItems, takenItems);
+
+            // Resolve every product of the order in one MongoDB query
+            Map<String, ProductResponse> products = productService.getProductsByIds(items.stream()
+                    .map(itemData -> itemData.get("productId").toString())
+                    .collect(Collectors.toSet()));
 
             // Add order items
             for (Map<String, Object> itemData : items) {
@@ -77,17 +116,28 @@ public class OrderService {
                 Integer quantity = Integer.valueOf(itemData.get("quantity").toString());
                 String variationSku = itemData.get("variationSku") != null ? itemData.get("variationSku").toString() : null;
 
-                // Fetch product from MongoDB
-                Optional<ProductResponse> productOpt = productService.getProductById(productId);
-                if (productOpt.isPresent()) {
-                    ProductResponse product = productOpt.get();
-                    
+                ProductResponse product = products.get(productId);
+                if (product != null) {
+                    StockReservation.Item held = heldItems.get(stockKey(productId, variationSku));
+                    int fromHold = held != null ? Math.min(held.getQuantity(), quantity) : 0;
+                    int extra = quantity - fromHold;
+                    if (quantity <= 0 || (extra > 0 && productService.adjustStock(productId, variationSku, -extra).isEmpty())) {
+                        throw new RuntimeException("Insufficient stock for product " + productId);
+                    }
+                    if (held != null) {
+                        held.setQuantity(held.getQuantity() - fromHold);
+                    }
+                    if (extra > 0) {
+                        takenItems.add(new StockReservation.Item(productId, variationSku, extra));
+                    }
+
                     OrderItem orderItem = new OrderItem();
-                    orderItem.setOrder(savedOrder);
+                    orderItem.setOrder(order);
                     orderItem.setProductId(productId);
                     orderItem.setVariationSku(variationSku);
                     orderItem.setProductName(product.getName());
                     orderItem.setProductImageUrl(product.getMainImageUrl());
+                    orderItem.setProductCategory(product.getCategory());
                     orderItem.setQuantity(quantity);
 
                     BigDecimal unitPrice = product.getPrice();
@@ -123,20 +173,99 @@ public class OrderService {
                     orderItem.setSubtotal(subtotal);
                     totalAmount = totalAmount.add(subtotal);
 
-                    savedOrder.getOrderItems().add(orderItem);
+                    order.getOrderItems().add(orderItem);
                 }
             }
 
-            savedOrder.setTotalAmount(totalAmount);
-            Order finalOrder = orderRepository.save(savedOrder);
+            // Items are cascaded, the order and its items are inserted with a single save
+            order.setTotalAmount(totalAmount);
+            Order finalOrder = orderRepository.save(order);
+            salesRollupService.recordOrder(finalOrder);
+            if (reservationId != null) {
+                stockReservationService.attachOrder(reservationId, finalOrder.getId());
+            }
 
-            return Optional.of(convertToOrderResponse(finalOrder));
+            // The products were loaded for checkout anyway, so the response gets them for free
+            return Optional.of(convertToOrderResponse(finalOrder, products));
         } catch (Exception e) {
+            // Roll back the order rows, which also gives back the stock taken so far
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return Optional.empty();
         }
     }
 
+    // Once the order transaction completes: on commit the held units the order did not use go back
+    // to the stock, on rollback the units taken go back and the reservation is live again
+    private void settleStockOnCompletion(String reservationId, Map<String, StockReservation.Item> heldItems,
+                                         List<StockReservation.Item> takenItems) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    stockReservationService.restock(heldItems.values().stream()
+                            .filter(item -> item.getQuantity() > 0)
+                            .collect(Collectors.toList()));
+                } else if (status == STATUS_ROLLED_BACK) {
+                    stockReservationService.restock(takenItems);
+                    if (reservationId != null) {
+                        stockReservationService.unclaim(reservationId);
+                    }
+                }
+            }
+        });
+    }
+
+    // Gives the stock of the order's items back once the surrounding transaction has committed
+    private void restockOnCommit(Order order) {
+        List<StockReservation.Item> items = order.getOrderItems().stream()
+                .map(item -> new StockReservation.Item(item.getProductId(), item.getVariationSku(), item.getQuantity()))
+                .collect(Collectors.toList());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockReservationService.restock(items);
+                stockReservationService.releaseOrder(order.getId());
+            }
+        });
+    }
+
+    // The hold used by the order is final once the confirmation has committed
+    private void confirmReservationOnCommit(Long orderId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockReservationService.confirmOrder(orderId);
+            }
+        });
+    }
+
+    private static String stockKey(String productId, String variationSku) {
+        return variationSku != null ? productId + "/" + variationSku : productId;
+    }
+
     private OrderResponse convertToOrderResponse(Order order) {
+        return convertToOrderResponse(order, Collections.emptyMap());
+    }
+
+    // Live product details of the items of all the orders in one MongoDB query, empty unless requested
+    private Map<String, ProductResponse> loadProducts(List<Order> orders, boolean includeProduct) {
+        if (!includeProduct) {
+            return Collections.emptyMap();
+        }
+        return productService.getProductsByIds(orders.stream()
+                .flatMap(order -> order.getOrderItems().stream())
+                .map(OrderItem::getProductId)
+                .collect(Collectors.toSet()));
+    }
+
+    private List<OrderResponse> convertToOrderResponses(List<Order> orders, boolean includeProduct) {
+        Map<String, ProductResponse> products = loadProducts(orders, includeProduct);
+        return orders.stream()
+                .map(order -> convertToOrderResponse(order, products))
+                .collect(Collectors.toList());
+    }
+
+    private OrderResponse convertToOrderResponse(Order order, Map<String, ProductResponse> products) {
         OrderResponse response = new OrderResponse();
         response.setId(order.getId());
         response.setUserId(order.getUser().getId());
@@ -149,14 +278,15 @@ public class OrderService {
         response.setCreatedAt(order.getCreatedAt());
 
         List<OrderItemResponse> orderItemResponses = order.getOrderItems().stream()
-                .map(this::convertToOrderItemResponse)
+                .map(orderItem -> convertToOrderItemResponse(orderItem, products.get(orderItem.getProductId())))
                 .collect(Collectors.toList());
         response.setOrderItems(orderItemResponses);
 
         return response;
     }
 
-    private OrderItemResponse convertToOrderItemResponse(OrderItem orderItem) {
+    // product holds the current product details, only set when they were requested
+    private OrderItemResponse convertToOrderItemResponse(OrderItem orderItem, ProductResponse product) {
         OrderItemResponse response = new OrderItemResponse();
         response.setId(orderItem.getId());
         response.setProductId(orderItem.getProductId());
@@ -168,10 +298,7 @@ public class OrderService {
         response.setUnitPrice(orderItem.getUnitPrice());
         response.setSubtotal(orderItem.getSubtotal());
         
-        // Optionally fetch current product details for reference
-        Optional<ProductResponse> productOpt = productService.getProductById(orderItem.getProductId());
-        if (productOpt.isPresent()) {
-            ProductResponse product = productOpt.get();
+        if (product != null) {
             response.setProduct(product);
             
             // If there's a variation SKU, find and set the selected variation
@@ -192,6 +319,17 @@ public class OrderService {
             Order order = optionalOrder.get();
             try {
                 Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+                // CANCELLED is terminal: its stock went back on cancel, reopening would let it be restocked twice
+                if (order.getStatus() == Order.OrderStatus.CANCELLED && orderStatus != Order.OrderStatus.CANCELLED) {
+                    return Optional.empty();
+                }
+                if (orderStatus == Order.OrderStatus.CANCELLED && order.getStatus() != Order.OrderStatus.CANCELLED) {
+                    restockOnCommit(order);
+                    salesRollupService.reverseOrder(order);
+                }
+                if (orderStatus == Order.OrderStatus.CONFIRMED) {
+                    confirmReservationOnCommit(order.getId());
+                }
                 order.setStatus(orderStatus);
                 Order updatedOrder = orderRepository.save(order);
                 return Optional.of(convertToOrderResponse(updatedOrder));
@@ -202,21 +340,16 @@ public class OrderService {
         return Optional.empty();
     }
 
-    public List<OrderResponse> getOrdersByUserId(Long userId) {
+    public List<OrderResponse> getOrdersByUserId(Long userId, boolean includeProduct) {
         List<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return orders.stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+        return convertToOrderResponses(orders, includeProduct);
     }
 
-    public Optional<List<OrderResponse>> getOrdersByStatus(String status) {
+    public Optional<List<OrderResponse>> getOrdersByStatus(String status, boolean includeProduct) {
         try {
             Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
             List<Order> orders = orderRepository.findByStatusOrderByCreatedAtDesc(orderStatus);
-            List<OrderResponse> orderResponses = orders.stream()
-                    .map(this::convertToOrderResponse)
-                    .collect(Collectors.toList());
-            return Optional.of(orderResponses);
+            return Optional.of(convertToOrderResponses(orders, includeProduct));
         } catch (IllegalArgumentException e) {
             return Optional.empty();
         }
@@ -229,6 +362,8 @@ public class OrderService {
             if (order.getStatus() == Order.OrderStatus.PENDING || order.getStatus() == Order.OrderStatus.CONFIRMED) {
                 order.setStatus(Order.OrderStatus.CANCELLED);
                 Order updatedOrder = orderRepository.save(order);
+                restockOnCommit(updatedOrder);
+                salesRollupService.reverseOrder(updatedOrder);
                 return Optional.of(convertToOrderResponse(updatedOrder));
             }
         }
@@ -238,38 +373,53 @@ public class OrderService {
     public boolean deleteOrder(Long id) {
         Optional<Order> optionalOrder = orderRepository.findById(id);
         if (optionalOrder.isPresent()) {
-            orderRepository.delete(optionalOrder.get());
+            Order order = optionalOrder.get();
+            if (order.getStatus() != Order.OrderStatus.CANCELLED) {
+                salesRollupService.reverseOrder(order);
+            }
+            // Unshipped orders give their stock back like a cancel (a cancelled order already has),
+            // shipped ones keep it and their hold is settled, so neither stays ORDERED forever
+            if (order.getStatus() == Order.OrderStatus.PENDING || order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                restockOnCommit(order);
+            } else if (order.getStatus() == Order.OrderStatus.SHIPPED || order.getStatus() == Order.OrderStatus.DELIVERED) {
+                confirmReservationOnCommit(order.getId());
+            }
+            orderRepository.delete(order);
             return true;
         }
         return false;
     }
 
     public Map<String, Object> getOrderStatistics() {
-        List<Order> allOrders = orderRepository.findAll();
-        
-        long totalOrders = allOrders.size();
-        long pendingOrders = allOrders.stream().filter(o -> o.getStatus() == Order.OrderStatus.PENDING).count();
-        long confirmedOrders = allOrders.stream().filter(o -> o.getStatus() == Order.OrderStatus.CONFIRMED).count();
-        long shippedOrders = allOrders.stream().filter(o -> o.getStatus() == Order.OrderStatus.SHIPPED).count();
-        long deliveredOrders = allOrders.stream().filter(o -> o.getStatus() == Order.OrderStatus.DELIVERED).count();
-        long cancelledOrders = allOrders.stream().filter(o -> o.getStatus() == Order.OrderStatus.CANCELLED).count();
-        
-        BigDecimal totalRevenue = allOrders.stream()
-                .filter(o -> o.getStatus() != Order.OrderStatus.CANCELLED)
-                .map(Order::getTotalAmount)
+        Map<Order.OrderStatus, OrderStatusTotals> totalsByStatus = new EnumMap<>(Order.OrderStatus.class);
+        for (OrderStatusTotals totals : orderRepository.aggregateTotalsByStatus()) {
+            totalsByStatus.put(totals.getStatus(), totals);
+        }
+
+        long totalOrders = totalsByStatus.values().stream().mapToLong(OrderStatusTotals::getOrderCount).sum();
+
+        BigDecimal totalRevenue = totalsByStatus.values().stream()
+                .filter(totals -> totals.getStatus() != Order.OrderStatus.CANCELLED)
+                .map(OrderStatusTotals::getTotalAmount)
+                .filter(Objects::nonNull)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
         
         return Map.of(
             "totalOrders", totalOrders,
-            "pendingOrders", pendingOrders,
-            "confirmedOrders", confirmedOrders,
-            "shippedOrders", shippedOrders,
-            "deliveredOrders", deliveredOrders,
-            "cancelledOrders", cancelledOrders,
+            "pendingOrders", countOrders(totalsByStatus, Order.OrderStatus.PENDING),
+            "confirmedOrders", countOrders(totalsByStatus, Order.OrderStatus.CONFIRMED),
+            "shippedOrders", countOrders(totalsByStatus, Order.OrderStatus.SHIPPED),
+            "deliveredOrders", countOrders(totalsByStatus, Order.OrderStatus.DELIVERED),
+            "cancelledOrders", countOrders(totalsByStatus, Order.OrderStatus.CANCELLED),
             "totalRevenue", totalRevenue
         );
     }
 
+    private long countOrders(Map<Order.OrderStatus, OrderStatusTotals> totalsByStatus, Order.OrderStatus status) {
+        OrderStatusTotals totals = totalsByStatus.get(status);
+        return totals != null ? totals.getOrderCount() : 0;
+    }
+
     public Optional<OrderResponse> confirmOrder(Long id) {
         return updateOrderStatus(id, "CONFIRMED");
     }
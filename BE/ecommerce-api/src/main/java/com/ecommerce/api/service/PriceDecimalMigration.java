@@ -0,0 +1,169 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.repository.MigrationCheckpointRepository;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rewrites product and variation prices stored as strings or doubles (the Spring Data default
+ * for BigDecimal before MongoConfig registered the Decimal128 converters) to Decimal128.
+ *
+ * Products are processed in _id order in fixed size batches. After every batch the last
+ * processed _id is saved to a MigrationCheckpoint, so an interrupted run resumes where it stopped.
+ * An update only applies while the document still holds the prices that were read; a product
+ * changed in between is skipped and the next run scans the collection again.
+ */
+@Service
+public class PriceDecimalMigration {
+
+    public static final String MIGRATION_NAME = "product-price-decimal128";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MigrationCheckpointRepository checkpointRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME).orElse(null);
+            if (checkpoint == null || !Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                migrate();
+            }
+        } catch (Exception e) {
+            System.err.println("Error migrating product prices to Decimal128: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs (or resumes) the migration and returns its checkpoint
+     */
+    public MigrationCheckpoint migrate() {
+        MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME)
+                .orElseGet(() -> new MigrationCheckpoint(MIGRATION_NAME));
+        String collection = mongoTemplate.getCollectionName(Product.class);
+        int skippedUpdates = 0;
+
+        while (true) {
+            Query query = new Query();
+            if (checkpoint.getLastProcessedId() != null) {
+                query.addCriteria(Criteria.where("_id").gt(checkpoint.getLastProcessedId()));
+            }
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(BATCH_SIZE);
+            query.fields().include("price", "variations.price");
+
+            List<Document> batch = mongoTemplate.find(query, Document.class, collection);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+            int pendingUpdates = 0;
+            int appliedUpdates = 0;
+            for (Document document : batch) {
+                Criteria filter = Criteria.where("_id").is(document.get("_id"));
+                Update update = buildUpdate(document, filter);
+                if (update != null) {
+                    bulkOperations.updateOne(new Query(filter), update);
+                    pendingUpdates++;
+                }
+            }
+            if (pendingUpdates > 0) {
+                appliedUpdates = bulkOperations.execute().getMatchedCount();
+                skippedUpdates += pendingUpdates - appliedUpdates;
+            }
+
+            checkpoint.setLastProcessedId(batch.get(batch.size() - 1).get("_id"));
+            checkpoint.setProcessedCount(checkpoint.getProcessedCount() + batch.size());
+            checkpoint.setUpdatedCount(checkpoint.getUpdatedCount() + appliedUpdates);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+
+        if (skippedUpdates > 0) {
+            // Products changed while being migrated, start over on the next run
+            checkpoint.setLastProcessedId(null);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            System.out.println("Product price migration skipped " + skippedUpdates
+                    + " products changed during the run, they are retried on the next run");
+            return checkpoint;
+        }
+
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        System.out.println("Product price migration finished: " + checkpoint.getProcessedCount()
+                + " products processed, " + checkpoint.getUpdatedCount() + " updated");
+        return checkpoint;
+    }
+
+    /**
+     * Returns null when every price of the document is already a Decimal128. Every rewritten
+     * price is also added to the filter with the value that was read.
+     */
+    private Update buildUpdate(Document document, Criteria filter) {
+        Update update = new Update();
+        boolean changed = false;
+
+        Decimal128 price = toDecimal128(document.get("price"));
+        if (price != null) {
+            update.set("price", price);
+            filter.and("price").is(document.get("price"));
+            changed = true;
+        }
+
+        Object variations = document.get("variations");
+        if (variations instanceof List) {
+            List<?> variationList = (List<?>) variations;
+            for (int i = 0; i < variationList.size(); i++) {
+                if (variationList.get(i) instanceof Document) {
+                    Object rawVariationPrice = ((Document) variationList.get(i)).get("price");
+                    Decimal128 variationPrice = toDecimal128(rawVariationPrice);
+                    if (variationPrice != null) {
+                        update.set("variations." + i + ".price", variationPrice);
+                        filter.and("variations." + i + ".price").is(rawVariationPrice);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return changed ? update : null;
+    }
+
+    // Converts legacy string and numeric values, returns null for values that need no rewrite
+    private Decimal128 toDecimal128(Object value) {
+        try {
+            if (value instanceof String) {
+                return new Decimal128(new BigDecimal(((String) value).trim()));
+            } else if (value instanceof Double || value instanceof Float) {
+                return new Decimal128(new BigDecimal(value.toString()));
+            } else if (value instanceof Integer || value instanceof Long) {
+                return new Decimal128(BigDecimal.valueOf(((Number) value).longValue()));
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping unparseable price value: " + value);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.repository.MigrationCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sets isActive: true on products stored without the flag (or with null), so product queries
+ * can match a plain isActive: true instead of the true / missing / null $or, and use the
+ * partial indexes of ProductIndexProvisioner.
+ *
+ * The flag is set with updateMulti over batches of _ids still missing it, so every batch is one
+ * write and an interrupted run simply picks up the products that are left. Progress is kept in a
+ * MigrationCheckpoint like PriceDecimalMigration. New writes always carry the flag (see the
+ * BeforeConvertCallback in MongoConfig).
+ */
+@Service
+public class ProductActiveFlagBackfill {
+
+    public static final String MIGRATION_NAME = "product-is-active-backfill";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MigrationCheckpointRepository checkpointRepository;
+
+    // Runs before the web server starts: products without the flag are invisible to the queries
+    @PostConstruct
+    public void onStartup() {
+        try {
+            MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME).orElse(null);
+            if (checkpoint == null || !Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                backfill();
+            }
+        } catch (Exception e) {
+            System.err.println("Error backfilling product isActive flags: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the backfill and returns its checkpoint. Can be run again at any time, it only
+     * touches the products that still miss the flag.
+     */
+    public MigrationCheckpoint backfill() {
+        // Every run is a full pass over the products still missing the flag, counts are per run
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint(MIGRATION_NAME);
+        String collection = mongoTemplate.getCollectionName(Product.class);
+
+        // { isActive: null } matches both a null and a missing field
+        long remaining = mongoTemplate.count(new Query(Criteria.where("isActive").is(null)), collection);
+        while (true) {
+            Query batchQuery = new Query(Criteria.where("isActive").is(null)).limit(BATCH_SIZE);
+            batchQuery.fields().include("_id");
+            List<Object> ids = mongoTemplate.find(batchQuery, Document.class, collection).stream()
+                    .map(document -> document.get("_id"))
+                    .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long updated = mongoTemplate.updateMulti(
+                    new Query(Criteria.where("_id").in(ids).and("isActive").is(null)),
+                    new Update().set("isActive", true),
+                    collection).getModifiedCount();
+
+            checkpoint.setLastProcessedId(ids.get(ids.size() - 1));
+            checkpoint.setProcessedCount(checkpoint.getProcessedCount() + ids.size());
+            checkpoint.setUpdatedCount(checkpoint.getUpdatedCount() + updated);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            System.out.println("Backfilled isActive on " + checkpoint.getUpdatedCount() + " of " + remaining + " products");
+        }
+
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return checkpointRepository.save(checkpoint);
+    }
+}
@@ -0,0 +1,759 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.CategoryFilterDto;
+import com.ecommerce.api.dto.FilterFacetDto;
+import com.ecommerce.api.dto.FilterOptionDto;
+import com.ecommerce.api.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory bitmap index answering the /products/filter queries of CustomProductRepositoryImpl.
+ *
+ * Every active product gets a dense ordinal, and for each (attribute, normalized value) pair the
+ * index keeps a BitSet of the ordinals having that value, either as a direct product field or in
+ * the attributes map. The indexed attributes are the filters defined in the categories collection
+ * plus every attribute key found on a product. A filter request is answered with bitmap OR within
+ * an attribute and AND across attributes, and the page and total count come from the same result.
+ *
+ * Queries the index cannot answer exactly (unknown attributes, unsupported sort fields, index not
+ * built yet) return Optional.empty() so the caller can fall back to the Mongo query.
+ */
+@Service
+public class ProductAttributeIndex {
+
+    // Product fields a string filter may match directly, besides attributes.<name>
+    private static final Set<String> DIRECT_STRING_FIELDS = Set.of("brand", "subCategory", "sku", "name", "currency");
+
+    // Product fields that change without a ProductChangedEvent, range filters on them go to Mongo
+    private static final Set<String> VOLATILE_NUMERIC_FIELDS = Set.of("stockQuantity", "averageRating", "totalReviews");
+
+    private static final Map<String, Function<IndexedProduct, Comparable<?>>> SORT_KEYS = Map.of(
+            "id", product -> product.id,
+            "name", product -> product.name,
+            "sku", product -> product.sku,
+            "brand", product -> product.brand,
+            "price", product -> product.price,
+            "createdAt", product -> product.createdAt
+    );
+
+    public static final String PRICE_FILTER = "price";
+
+    // Number of histogram buckets returned for range facets
+    private static final int RANGE_FACET_BUCKETS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CategoryFilterService categoryFilterService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinal -> product, null for free slots
+    private final List<IndexedProduct> products = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+
+    // normalized category -> products
+    private final Map<String, BitSet> categoryBitmaps = new HashMap<>();
+
+    // attribute name -> normalized value -> products
+    private final Map<String, Map<String, BitSet>> valueBitmaps = new HashMap<>();
+
+    // Attribute names a string filter can be answered for
+    private final Set<String> indexedAttributes = new HashSet<>(DIRECT_STRING_FIELDS);
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query(Criteria.where("isActive").is(true));
+        query.fields().exclude("description", "images", "specifications", "variations", "reviews");
+
+        lock.writeLock().lock();
+        try (Stream<Product> stream = mongoTemplate.stream(query, Product.class)) {
+            products.clear();
+            ordinals.clear();
+            freeOrdinals.clear();
+            live.clear();
+            categoryBitmaps.clear();
+            valueBitmaps.clear();
+            indexedAttributes.clear();
+            indexedAttributes.addAll(DIRECT_STRING_FIELDS);
+
+            for (CategoryFilterDto category : categoryFilterService.getAllCategories()) {
+                if (category.getFilters() == null) {
+                    continue;
+                }
+                for (FilterOptionDto filter : category.getFilters()) {
+                    if ("string".equalsIgnoreCase(filter.getType())) {
+                        indexedAttributes.add(filter.getName());
+                    }
+                }
+            }
+
+            stream.forEach(this::addProduct);
+            ready = true;
+            System.out.println("Product attribute index built with " + ordinals.size() + " products and "
+                    + indexedAttributes.size() + " attributes");
+        } catch (Exception e) {
+            System.err.println("Error building product attribute index: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(event.getProduct().getId());
+            if (!event.isRemoval()) {
+                addProduct(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Resolves one page of product ids matching the category and attribute filters, in the
+     * requested sort order, together with the total number of matches
+     */
+    public Optional<Page<String>> findIds(String category, Map<String, Object> attributeFilters, Pageable pageable) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Comparator<IndexedProduct> comparator = buildComparator(pageable.getSort());
+            if (comparator == null) {
+                return Optional.empty();
+            }
+
+            Optional<CompiledQuery> compiled = compile(category, attributeFilters);
+            if (compiled.isEmpty()) {
+                return Optional.empty();
+            }
+
+            BitSet matches = compiled.get().matchingAll();
+            List<String> pageIds = selectPage(matches, comparator, pageable);
+            return Optional.of(new PageImpl<>(pageIds, pageable, matches.cardinality()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset variant of findIds: up to limit product ids that sort strictly after the given
+     * product (only its sort fields and id are needed), or the first ones when it is null
+     */
+    public Optional<List<String>> findIdsAfter(String category, Map<String, Object> attributeFilters, Sort sort,
+                                               Product after, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Comparator<IndexedProduct> comparator = buildComparator(sort);
+            if (comparator == null) {
+                return Optional.empty();
+            }
+
+            Optional<CompiledQuery> compiled = compile(category, attributeFilters);
+            if (compiled.isEmpty()) {
+                return Optional.empty();
+            }
+
+            IndexedProduct position = after != null ? new IndexedProduct(after) : null;
+            PriorityQueue<IndexedProduct> heap = new PriorityQueue<>(comparator.reversed());
+            BitSet matches = compiled.get().matchingAll();
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                IndexedProduct product = products.get(ordinal);
+                if (position != null && comparator.compare(product, position) <= 0) {
+                    continue;
+                }
+                heap.add(product);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+
+            List<IndexedProduct> top = new ArrayList<>(heap);
+            top.sort(comparator);
+            return Optional.of(top.stream().map(product -> product.id).collect(Collectors.toList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of products matching the category and attribute filters
+    public Optional<Long> countMatches(String category, Map<String, Object> attributeFilters) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            return compile(category, attributeFilters)
+                    .map(compiled -> (long) compiled.matchingAll().cardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts matches for every option of the given filter definitions, and a histogram for range
+     * filters. Each filter's counts ignore its own selection but respect all the other selected
+     * filters (disjunctive faceting), and everything is computed in one pass over the category.
+     */
+    public Optional<List<FilterFacetDto>> computeFacets(String category, Map<String, Object> attributeFilters,
+                                                        List<FilterOptionDto> definitions) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Optional<CompiledQuery> compiled = compile(category, attributeFilters);
+            if (compiled.isEmpty()) {
+                return Optional.empty();
+            }
+
+            List<String> filterNames = new ArrayList<>(compiled.get().filters.keySet());
+            BitSet[] filterBitmaps = compiled.get().filters.values().toArray(new BitSet[0]);
+
+            List<FacetCounter> counters = new ArrayList<>();
+            for (FilterOptionDto definition : definitions) {
+                counters.add(new FacetCounter(definition, filterNames.indexOf(definition.getName())));
+            }
+
+            BitSet base = compiled.get().base;
+            for (int ordinal = base.nextSetBit(0); ordinal >= 0; ordinal = base.nextSetBit(ordinal + 1)) {
+                // Find the selected filters this product fails
+                int failedFilter = -1;
+                int failures = 0;
+                for (int i = 0; i < filterBitmaps.length && failures < 2; i++) {
+                    if (!filterBitmaps[i].get(ordinal)) {
+                        failedFilter = i;
+                        failures++;
+                    }
+                }
+                if (failures >= 2) {
+                    continue;
+                }
+
+                // Matching every filter counts for all facets, failing exactly one counts for that facet only
+                for (FacetCounter counter : counters) {
+                    if (failures == 0 || counter.filterIndex == failedFilter) {
+                        counter.count(ordinal);
+                    }
+                }
+            }
+
+            List<FilterFacetDto> facets = new ArrayList<>();
+            for (FacetCounter counter : counters) {
+                facets.add(counter.toDto());
+            }
+            return Optional.of(facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Must be called with the read lock held
+    Optional<CompiledQuery> compile(String category, Map<String, Object> attributeFilters) {
+        BitSet base = (BitSet) live.clone();
+        if (category != null && !category.trim().isEmpty()) {
+            BitSet categoryBitmap = categoryBitmaps.get(normalize(category));
+            if (categoryBitmap == null) {
+                base.clear();
+            } else {
+                base.and(categoryBitmap);
+            }
+        }
+
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        Map<String, NumericRange> ranges = new LinkedHashMap<>();
+
+        if (attributeFilters != null) {
+            for (Map.Entry<String, Object> entry : attributeFilters.entrySet()) {
+                String attributeName = entry.getKey();
+                Object attributeValue = entry.getValue();
+
+                if (attributeValue == null) {
+                    continue;
+                }
+
+                if (attributeName.equals(PRICE_FILTER)) {
+                    continue;
+                } else if (attributeName.equals("minPrice") || attributeName.equals("maxPrice")) {
+                    Double bound = toDouble(attributeValue);
+                    if (bound != null) {
+                        NumericRange range = ranges.computeIfAbsent(PRICE_FILTER, name -> new NumericRange());
+                        if (attributeName.equals("minPrice")) {
+                            range.min = bound;
+                        } else {
+                            range.max = bound;
+                        }
+                    }
+                } else if (attributeName.endsWith("_min") || attributeName.endsWith("_max")) {
+                    String fieldName = attributeName.substring(0, attributeName.length() - 4);
+                    if (VOLATILE_NUMERIC_FIELDS.contains(fieldName)) {
+                        return Optional.empty();
+                    }
+                    Double bound = toDouble(attributeValue);
+                    if (bound != null) {
+                        NumericRange range = ranges.computeIfAbsent(fieldName, name -> new NumericRange());
+                        if (attributeName.endsWith("_min")) {
+                            range.min = bound;
+                        } else {
+                            range.max = bound;
+                        }
+                    }
+                } else {
+                    List<String> values = toValues(attributeValue);
+                    if (values.isEmpty()) {
+                        continue;
+                    }
+                    if (!indexedAttributes.contains(attributeName)) {
+                        return Optional.empty();
+                    }
+                    filters.put(attributeName, valuesBitmap(attributeName, values));
+                }
+            }
+        }
+
+        for (Map.Entry<String, NumericRange> entry : ranges.entrySet()) {
+            filters.put(entry.getKey(), rangeBitmap(base, entry.getKey(), entry.getValue()));
+        }
+
+        return Optional.of(new CompiledQuery(base, filters));
+    }
+
+    // Must be called with the read lock held
+    List<String> selectPage(BitSet matches, Comparator<IndexedProduct> comparator, Pageable pageable) {
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        List<String> pageIds = new ArrayList<>(size);
+
+        if (pageable.getSort().isUnsorted()) {
+            // Ordinal order, no sorting needed
+            int skipped = 0;
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && pageIds.size() < size;
+                 ordinal = matches.nextSetBit(ordinal + 1)) {
+                if (skipped++ >= offset) {
+                    pageIds.add(products.get(ordinal).id);
+                }
+            }
+            return pageIds;
+        }
+
+        // Keep only the first offset + size products in a bounded heap
+        long limit = offset + size;
+        PriorityQueue<IndexedProduct> heap = new PriorityQueue<>(comparator.reversed());
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            heap.add(products.get(ordinal));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<IndexedProduct> top = new ArrayList<>(heap);
+        top.sort(comparator);
+        for (int i = (int) Math.min(offset, top.size()); i < top.size(); i++) {
+            pageIds.add(top.get(i).id);
+        }
+        return pageIds;
+    }
+
+    // Returns null when a sort property is not kept in memory
+    Comparator<IndexedProduct> buildComparator(Sort sort) {
+        Comparator<IndexedProduct> comparator = null;
+        for (Sort.Order order : sort) {
+            Function<IndexedProduct, Comparable<?>> key = SORT_KEYS.get(order.getProperty());
+            if (key == null) {
+                return null;
+            }
+            // Mongo sorts missing values first in ascending order
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Comparator<IndexedProduct> next = Comparator.comparing(
+                    (Function) key, Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<IndexedProduct> byId = Comparator.comparing(product -> product.id);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private BitSet valuesBitmap(String attributeName, List<String> values) {
+        BitSet bitmap = new BitSet();
+        Map<String, BitSet> byValue = valueBitmaps.getOrDefault(attributeName, Collections.emptyMap());
+        for (String value : values) {
+            BitSet valueBitmap = byValue.get(normalize(value));
+            if (valueBitmap != null) {
+                bitmap.or(valueBitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private BitSet rangeBitmap(BitSet base, String fieldName, NumericRange range) {
+        BitSet bitmap = new BitSet();
+        for (int ordinal = base.nextSetBit(0); ordinal >= 0; ordinal = base.nextSetBit(ordinal + 1)) {
+            Double value = products.get(ordinal).numericValue(fieldName);
+            if (value != null && range.contains(value)) {
+                bitmap.set(ordinal);
+            }
+        }
+        return bitmap;
+    }
+
+    // Must be called with the write lock held
+    private void addProduct(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = products.size();
+            products.add(null);
+        } else {
+            ordinal = freeOrdinals.pop();
+        }
+
+        IndexedProduct indexed = new IndexedProduct(product);
+        products.set(ordinal, indexed);
+        ordinals.put(indexed.id, ordinal);
+        live.set(ordinal);
+
+        if (product.getCategory() != null) {
+            categoryBitmaps.computeIfAbsent(normalize(product.getCategory()), key -> new BitSet()).set(ordinal);
+        }
+
+        Map<String, Object> attributes = product.getAttributes() != null ? product.getAttributes() : Collections.emptyMap();
+        Set<String> attributeNames = new HashSet<>(DIRECT_STRING_FIELDS);
+        attributeNames.addAll(attributes.keySet());
+        indexedAttributes.addAll(attributes.keySet());
+
+        for (String attributeName : attributeNames) {
+            List<String> values = new ArrayList<>(toValues(directValue(product, attributeName)));
+            values.addAll(toValues(attributes.get(attributeName)));
+            for (String value : values) {
+                String normalized = normalize(value);
+                valueBitmaps.computeIfAbsent(attributeName, key -> new HashMap<>())
+                        .computeIfAbsent(normalized, key -> new BitSet())
+                        .set(ordinal);
+                indexed.postings.add(new String[]{attributeName, normalized});
+            }
+        }
+    }
+
+    // Must be called with the write lock held
+    private void removeProduct(String productId) {
+        Integer ordinal = productId != null ? ordinals.remove(productId) : null;
+        if (ordinal == null) {
+            return;
+        }
+
+        IndexedProduct indexed = products.get(ordinal);
+        if (indexed.category != null) {
+            BitSet categoryBitmap = categoryBitmaps.get(indexed.category);
+            if (categoryBitmap != null) {
+                categoryBitmap.clear(ordinal);
+            }
+        }
+        for (String[] posting : indexed.postings) {
+            Map<String, BitSet> byValue = valueBitmaps.get(posting[0]);
+            if (byValue != null) {
+                BitSet bitmap = byValue.get(posting[1]);
+                if (bitmap != null) {
+                    bitmap.clear(ordinal);
+                    if (bitmap.isEmpty()) {
+                        byValue.remove(posting[1]);
+                    }
+                }
+            }
+        }
+
+        live.clear(ordinal);
+        products.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    private static Object directValue(Product product, String fieldName) {
+        switch (fieldName) {
+            case "brand":
+                return product.getBrand();
+            case "subCategory":
+                return product.getSubCategory();
+            case "sku":
+                return product.getSku();
+            case "name":
+                return product.getName();
+            case "currency":
+                return product.getCurrency();
+            default:
+                return null;
+        }
+    }
+
+    private static List<String> toValues(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (element != null && !element.toString().trim().isEmpty()) {
+                    values.add(element.toString());
+                }
+            }
+        } else if (!value.toString().trim().isEmpty()) {
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    private static Double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return null; // Ignore invalid number format, like the Mongo query does
+            }
+        }
+        return null;
+    }
+
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Filters of one request compiled to bitmaps. The base holds the active products of the
+     * requested category and each filter the products matching that one attribute.
+     */
+    static class CompiledQuery {
+        final BitSet base;
+        final Map<String, BitSet> filters;
+
+        CompiledQuery(BitSet base, Map<String, BitSet> filters) {
+            this.base = base;
+            this.filters = filters;
+        }
+
+        BitSet matchingAll() {
+            BitSet result = (BitSet) base.clone();
+            for (BitSet filter : filters.values()) {
+                result.and(filter);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Accumulates the counts of one facet. Must only be used with the read lock held.
+     */
+    private class FacetCounter {
+        private final FilterOptionDto definition;
+        private final int filterIndex;
+        private final BitSet[] optionBitmaps;
+        private final boolean range;
+        // Range definitions without minValue/maxValue are bucketed over the matched values, which
+        // are only known once every product has been counted
+        private final boolean derivedBounds;
+        private long[] counts;
+        private double min;
+        private double max;
+        private double bucketWidth;
+        private double[] values;
+        private int valueCount;
+
+        private FacetCounter(FilterOptionDto definition, int filterIndex) {
+            this.definition = definition;
+            this.filterIndex = filterIndex;
+            this.range = "range".equalsIgnoreCase(definition.getType());
+
+            if (range) {
+                this.optionBitmaps = null;
+                this.derivedBounds = !hasConfiguredBounds();
+                if (derivedBounds) {
+                    this.values = new double[16];
+                } else {
+                    setBounds(definition.getMinValue(), definition.getMaxValue());
+                }
+            } else {
+                List<String> options = definition.getOptions() != null ? definition.getOptions() : Collections.emptyList();
+                Map<String, BitSet> byValue = valueBitmaps.getOrDefault(definition.getName(), Collections.emptyMap());
+                this.optionBitmaps = new BitSet[options.size()];
+                for (int i = 0; i < options.size(); i++) {
+                    optionBitmaps[i] = byValue.get(normalize(options.get(i)));
+                }
+                this.derivedBounds = false;
+                this.counts = new long[options.size()];
+            }
+        }
+
+        private boolean hasConfiguredBounds() {
+            return definition.getMinValue() != null && definition.getMaxValue() != null
+                    && definition.getMaxValue() > definition.getMinValue();
+        }
+
+        private void setBounds(double min, double max) {
+            this.min = min;
+            this.max = max;
+            this.counts = new long[RANGE_FACET_BUCKETS];
+            this.bucketWidth = (max - min) / RANGE_FACET_BUCKETS;
+        }
+
+        private void count(int ordinal) {
+            if (optionBitmaps != null) {
+                for (int i = 0; i < optionBitmaps.length; i++) {
+                    if (optionBitmaps[i] != null && optionBitmaps[i].get(ordinal)) {
+                        counts[i]++;
+                    }
+                }
+                return;
+            }
+
+            Double value = products.get(ordinal).numericValue(definition.getName());
+            if (value == null) {
+                return;
+            }
+            if (derivedBounds) {
+                if (valueCount == values.length) {
+                    values = Arrays.copyOf(values, valueCount * 2);
+                }
+                values[valueCount++] = value;
+            } else {
+                addToBucket(value);
+            }
+        }
+
+        private void addToBucket(double value) {
+            if (value < min || value > max) {
+                return;
+            }
+            // The maximum falls into the last bucket
+            int bucket = (int) Math.min((value - min) / bucketWidth, RANGE_FACET_BUCKETS - 1);
+            counts[bucket]++;
+        }
+
+        private FilterFacetDto toDto() {
+            FilterFacetDto dto = new FilterFacetDto();
+            dto.setName(definition.getName());
+            dto.setType(definition.getType());
+            dto.setUnit(definition.getUnit());
+
+            if (optionBitmaps != null) {
+                for (int i = 0; i < counts.length; i++) {
+                    dto.getOptions().add(new FilterFacetDto.OptionCount(definition.getOptions().get(i), counts[i]));
+                }
+                return dto;
+            }
+
+            if (derivedBounds) {
+                if (valueCount == 0) {
+                    return dto;
+                }
+                double low = Double.POSITIVE_INFINITY;
+                double high = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < valueCount; i++) {
+                    low = Math.min(low, values[i]);
+                    high = Math.max(high, values[i]);
+                }
+                if (high == low) {
+                    // Every matched product has the same value, a single bucket
+                    dto.getRanges().add(new FilterFacetDto.RangeCount(low, high, valueCount));
+                    return dto;
+                }
+                setBounds(low, high);
+                for (int i = 0; i < valueCount; i++) {
+                    addToBucket(values[i]);
+                }
+            }
+            for (int i = 0; i < counts.length; i++) {
+                double from = min + i * bucketWidth;
+                double to = i == counts.length - 1 ? max : from + bucketWidth;
+                dto.getRanges().add(new FilterFacetDto.RangeCount(from, to, counts[i]));
+            }
+            return dto;
+        }
+    }
+
+    private static class NumericRange {
+        private Double min;
+        private Double max;
+
+        private boolean contains(double value) {
+            return (min == null || value >= min) && (max == null || value <= max);
+        }
+    }
+
+    static class IndexedProduct {
+        final String id;
+        final String name;
+        final String sku;
+        final String brand;
+        final String category;
+        final BigDecimal price;
+        final LocalDateTime createdAt;
+        final Map<String, Double> numericAttributes = new HashMap<>();
+        final List<String[]> postings = new ArrayList<>();
+
+        IndexedProduct(Product product) {
+            this.id = product.getId();
+            this.name = product.getName();
+            this.sku = product.getSku();
+            this.brand = product.getBrand();
+            this.category = product.getCategory() != null ? normalize(product.getCategory()) : null;
+            this.price = product.getPrice();
+            this.createdAt = product.getCreatedAt();
+            if (product.getAttributes() != null) {
+                product.getAttributes().forEach((name, value) -> {
+                    if (value instanceof Number) {
+                        numericAttributes.put(name, ((Number) value).doubleValue());
+                    }
+                });
+            }
+        }
+
+        Double numericValue(String fieldName) {
+            if (fieldName.equals(PRICE_FILTER)) {
+                return price != null ? price.doubleValue() : null;
+            }
+            return numericAttributes.get(fieldName);
+        }
+    }
+}
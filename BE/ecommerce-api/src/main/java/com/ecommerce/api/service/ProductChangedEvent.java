@@ -0,0 +1,21 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by ProductService after a product has been created, updated or soft deleted,
+ * so that in-memory read models can stay in sync with MongoDB
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    private final Product product;
+
+    // Inactive (soft deleted) products should be dropped from read models.
+    public boolean isRemoval() {
+        return Boolean.FALSE.equals(product.getIsActive());
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSummary;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes and decodes the opaque continuation tokens used by cursor pagination.
+ *
+ * A token is the base64url encoded extended JSON of the sort it was issued for and the values of
+ * the last returned product for each sort field plus _id, in their stored (BSON) form so that
+ * they compare exactly like the documents in Mongo.
+ */
+@Component
+public class ProductCursorCodec {
+
+    private static final String ID_FIELD = "_id";
+
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    @Autowired
+    private MongoConverter mongoConverter;
+
+    // Sort fields have to be part of the summary projection to be read back from the last product
+    public boolean supports(Sort sort) {
+        MongoPersistentEntity<?> entity = mongoConverter.getMappingContext().getRequiredPersistentEntity(ProductSummary.class);
+        return sort.stream().allMatch(order -> entity.getPersistentProperty(order.getProperty()) != null);
+    }
+
+    public String encode(ProductSummary lastProduct, Sort sort) {
+        Document stored = new Document();
+        mongoConverter.write(lastProduct, stored);
+
+        Document keys = new Document();
+        for (Sort.Order order : sort) {
+            String fieldName = toFieldName(order.getProperty());
+            keys.put(fieldName, resolve(stored, fieldName));
+        }
+        keys.put(ID_FIELD, stored.get(ID_FIELD));
+
+        Document token = new Document("sort", describe(sort)).append("keys", keys);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(token.toJson(JSON_SETTINGS).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the keys (field name -> stored value) of a token, or empty when the token is
+     * malformed or was issued for a different sort
+     */
+    public Optional<Map<String, Object>> decode(String cursor, Sort sort) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Document token = Document.parse(json);
+            Object keys = token.get("keys");
+            if (!describe(sort).equals(token.getString("sort")) || !(keys instanceof Document)
+                    || !((Document) keys).containsKey(ID_FIELD)) {
+                return Optional.empty();
+            }
+            return Optional.of(new LinkedHashMap<>((Document) keys));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Product holding only the cursor keys, used to position the in-memory attribute index
+    public Product toProduct(Map<String, Object> keys) {
+        return mongoConverter.read(Product.class, new Document(keys));
+    }
+
+    private static String describe(Sort sort) {
+        return sort.stream()
+                .map(order -> order.getProperty() + ":" + order.getDirection())
+                .collect(Collectors.joining(","));
+    }
+
+    private static String toFieldName(String property) {
+        return property.equals("id") ? ID_FIELD : property;
+    }
+
+    // Follows dotted paths into embedded documents
+    private static Object resolve(Document document, String path) {
+        Object value = document;
+        for (String segment : path.split("\\.")) {
+            if (!(value instanceof Document)) {
+                return null;
+            }
+            value = ((Document) value).get(segment);
+        }
+        return value;
+    }
+}
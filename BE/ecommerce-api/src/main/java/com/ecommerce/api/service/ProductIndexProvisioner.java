@@ -0,0 +1,316 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.repository.CustomProductRepository;
+import com.ecommerce.api.repository.ProductRepository;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.data.repository.core.support.RepositoryFragment;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the indexes of the products collection that serve the ProductRepository queries.
+ *
+ * The index set is declared here, next to the query shapes it serves, and reconciled at
+ * startup: missing indexes are created and indexes with the managed prefix that are no longer
+ * declared are dropped. Indexes for queries that always filter on isActive: true are partial,
+ * so inactive products take no space in them. checkQueryPlans runs every ProductRepository
+ * query against a MongoTemplate that explains the finds instead of executing them, and reports
+ * the queries whose winning plan still scans the whole collection.
+ */
+@Service
+public class ProductIndexProvisioner {
+
+    // Only indexes with this prefix are managed (and dropped) here
+    private static final String PREFIX = "idx_products_";
+
+    // Unmanaged indexes a declared index replaces, dropped by provision
+    private static final Set<String> REPLACED_INDEXES = Set.of(
+            // Unnamed price index PriceDecimalMigration used to create, now idx_products_price_active
+            "price_1");
+
+    private static final Criteria ACTIVE = Criteria.where("isActive").is(true);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Only its CustomProductRepository part is used, as the custom fragment of the explaining repository
+    @Autowired
+    private ProductRepository productRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            provision();
+        } catch (Exception e) {
+            System.err.println("Error provisioning product indexes: " + e.getMessage());
+        }
+    }
+
+    public List<Index> declaredIndexes() {
+        return List.of(
+                // findActiveProducts, sorted by name by default
+                new Index().named(PREFIX + "isActive_name").on("isActive", Sort.Direction.ASC).on("name", Sort.Direction.ASC),
+                // findBySkuAndIsActiveTrue
+                activeIndex("sku").on("sku", Sort.Direction.ASC),
+                // findByCategoryAndIsActiveTrue (prefix), findByCategoryAndSubCategoryAndIsActiveTrue,
+                // findDistinctSubCategoryProductsByCategory
+                activeIndex("category_subCategory").on("category", Sort.Direction.ASC).on("subCategory", Sort.Direction.ASC),
+                // findBySubCategoryAndIsActiveTrue
+                activeIndex("subCategory").on("subCategory", Sort.Direction.ASC),
+                // findByBrandAndIsActiveTrue, findDistinctBrandProducts
+                activeIndex("brand").on("brand", Sort.Direction.ASC),
+                // findByPriceBetweenAndIsActiveTrue, findByFilters
+                activeIndex("price").on("price", Sort.Direction.ASC),
+                // findLowStockProducts
+                activeIndex("stockQuantity").on("stockQuantity", Sort.Direction.ASC),
+                // findTopRatedProducts, findFeaturedProducts
+                activeIndex("averageRating").on("averageRating", Sort.Direction.DESC),
+                // findBy*SpecialProperties*TrueAndIsActiveTrue: only the flagged active products are indexed
+                flagIndex("newArrival"),
+                flagIndex("hasOffer"),
+                flagIndex("bestSeller"),
+                // findByVariationSku and the stock updates, not limited to active products
+                new Index().named(PREFIX + "variations_sku").on("variations.sku", Sort.Direction.ASC)
+        );
+    }
+
+    /**
+     * Creates the declared indexes that are missing and drops managed indexes that are no longer
+     * declared. Returns the names of the indexes the collection has afterwards.
+     */
+    public List<String> provision() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(Product.class);
+        List<Index> declared = declaredIndexes();
+        Set<String> declaredNames = declared.stream()
+                .map(index -> (String) index.getIndexOptions().get("name"))
+                .collect(Collectors.toSet());
+
+        for (IndexInfo existing : indexOperations.getIndexInfo()) {
+            if (existing.getName().startsWith(PREFIX) && !declaredNames.contains(existing.getName())) {
+                System.out.println("Dropping undeclared product index " + existing.getName());
+                indexOperations.dropIndex(existing.getName());
+            } else if (REPLACED_INDEXES.contains(existing.getName())) {
+                System.out.println("Dropping replaced product index " + existing.getName());
+                indexOperations.dropIndex(existing.getName());
+            }
+        }
+        for (Index index : declared) {
+            try {
+                indexOperations.ensureIndex(index);
+            } catch (Exception e) {
+                // Same name, different keys or filter: the declaration changed, rebuild the index
+                String name = (String) index.getIndexOptions().get("name");
+                System.out.println("Rebuilding changed product index " + name);
+                indexOperations.dropIndex(name);
+                indexOperations.ensureIndex(index);
+            }
+        }
+        return indexOperations.getIndexInfo().stream().map(IndexInfo::getName).toList();
+    }
+
+    /**
+     * Calls every query method declared on ProductRepository with placeholder arguments, through
+     * a repository whose finds are explained instead of executed, and returns the winning plan
+     * stages per method. Methods listed in the result's "collectionScans" entry fell back to a
+     * COLLSCAN, the ones in "errors" could not be explained.
+     */
+    public Map<String, Object> checkQueryPlans() {
+        List<List<String>> explained = new ArrayList<>();
+        ProductRepository explainingRepository = explainingRepository(explained);
+
+        Map<String, List<String>> plans = new LinkedHashMap<>();
+        List<String> collectionScans = new ArrayList<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        List<Method> methods = Arrays.stream(ProductRepository.class.getDeclaredMethods())
+                .filter(method -> !method.isDefault() && !method.isSynthetic())
+                .sorted(Comparator.comparing(ProductIndexProvisioner::describe))
+                .toList();
+        for (Method method : methods) {
+            String name = describe(method);
+            explained.clear();
+            try {
+                method.invoke(explainingRepository, Arrays.stream(method.getParameterTypes())
+                        .map(ProductIndexProvisioner::placeholder)
+                        .toArray());
+            } catch (Exception e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                errors.put(name, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                continue;
+            }
+            List<String> stages = explained.stream().flatMap(List::stream).toList();
+            plans.put(name, stages);
+            if (stages.contains("COLLSCAN")) {
+                collectionScans.add(name);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("collectionScans", collectionScans);
+        result.put("errors", errors);
+        result.put("plans", plans);
+        return result;
+    }
+
+    // ProductRepository on a template whose collections explain every find and answer it with no documents
+    private ProductRepository explainingRepository(List<List<String>> explained) {
+        MongoTemplate explainingTemplate = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter()) {
+            @Override
+            protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+                return explaining(super.prepareCollection(collection), explained);
+            }
+        };
+        return new MongoRepositoryFactory(explainingTemplate).getRepository(ProductRepository.class,
+                RepositoryFragments.of(RepositoryFragment.implemented(CustomProductRepository.class, productRepository)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> explaining(MongoCollection<Document> collection, List<List<String>> explained) {
+        return (MongoCollection<Document>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(),
+                new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("countDocuments") || method.getName().equals("estimatedDocumentCount")) {
+                        return 0L;
+                    }
+                    Object result = invoke(collection, method, args);
+                    if (result instanceof FindIterable<?> findIterable) {
+                        return explaining(findIterable, explained);
+                    }
+                    // withReadPreference and friends return a new collection, keep explaining on it
+                    if (result instanceof MongoCollection<?> other) {
+                        return explaining((MongoCollection<Document>) other, explained);
+                    }
+                    return result;
+                });
+    }
+
+    // Builder calls go to the real find, running it explains it instead and yields no documents
+    private static FindIterable<?> explaining(FindIterable<?> findIterable, List<List<String>> explained) {
+        return (FindIterable<?>) Proxy.newProxyInstance(FindIterable.class.getClassLoader(),
+                new Class<?>[] { FindIterable.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "iterator", "cursor", "first" -> {
+                            explained.add(winningPlanStages(findIterable.explain()));
+                            return method.getName().equals("first") ? null : emptyCursor();
+                        }
+                        default -> {
+                            Object result = invoke(findIterable, method, args);
+                            return result == findIterable ? proxy : result;
+                        }
+                    }
+                });
+    }
+
+    private static MongoCursor<?> emptyCursor() {
+        return (MongoCursor<?>) Proxy.newProxyInstance(MongoCursor.class.getClassLoader(),
+                new Class<?>[] { MongoCursor.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "hasNext" -> false;
+                    case "available" -> 0;
+                    case "next" -> throw new NoSuchElementException();
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "EmptyCursor";
+                    default -> null;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Argument values do not change the plan, only their types have to fit
+    private static Object placeholder(Class<?> type) {
+        if (type == String.class) {
+            return "placeholder";
+        } else if (type == Integer.class || type == int.class) {
+            return 1;
+        } else if (type == Double.class || type == double.class) {
+            return 1.0;
+        } else if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        } else if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 20);
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return List.of("placeholder");
+        }
+        throw new IllegalArgumentException("No placeholder for " + type.getSimpleName());
+    }
+
+    // Method name with its parameter types, to tell overloads apart
+    private static String describe(Method method) {
+        return method.getName() + Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static List<String> winningPlanStages(Document explain) {
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        List<String> stages = new ArrayList<>();
+        if (queryPlanner != null) {
+            collectStages(queryPlanner.get("winningPlan"), stages);
+        }
+        return stages;
+    }
+
+    // Walks the plan tree (inputStage, inputStages and the queryPlan of the slot based engine)
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (stage instanceof String) {
+                stages.add((String) stage);
+            }
+            for (Object value : document.values()) {
+                collectStages(value, stages);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                collectStages(value, stages);
+            }
+        }
+    }
+
+    private static Index activeIndex(String name) {
+        return new Index().named(PREFIX + name + "_active").partial(PartialIndexFilter.of(ACTIVE));
+    }
+
+    private static Index flagIndex(String property) {
+        String field = "specialProperties." + property;
+        return new Index().named(PREFIX + property + "_active")
+                .on(field, Sort.Direction.ASC)
+                .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true).and(field).is(true)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.ProductResponse;
+import com.ecommerce.api.dto.ProductSummaryResponse;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSpecifications;
+import com.ecommerce.api.entity.ProductSummary;
+import com.ecommerce.api.entity.ProductVariation;
+import com.ecommerce.api.entity.SpecialProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Hand-written mapping from the product documents to the response DTOs. Nested objects are
+ * copied so responses never share mutable state with the entities, but each field is copied
+ * once with plain getters and setters instead of going through ModelMapper's reflection.
+ */
+@Component
+public class ProductMapper {
+
+    public ProductResponse toResponse(Product product) {
+        ProductResponse response = new ProductResponse();
+        response.setId(product.getId());
+        response.setSku(product.getSku());
+        response.setName(product.getName());
+        response.setDescription(product.getDescription());
+        response.setCategory(product.getCategory());
+        response.setSubCategory(product.getSubCategory());
+        response.setBrand(product.getBrand());
+        response.setPrice(product.getPrice());
+        response.setCurrency(product.getCurrency());
+        response.setStockQuantity(product.getStockQuantity());
+        if (product.getImages() != null) {
+            response.setImages(new ArrayList<>(product.getImages()));
+        }
+        response.setSpecifications(copy(product.getSpecifications()));
+        if (product.getAttributes() != null) {
+            response.setAttributes(new HashMap<>(product.getAttributes()));
+        }
+        response.setVariations(copyVariations(product.getVariations()));
+        response.setIsActive(product.getIsActive());
+        response.setSpecialProperties(copy(product.getSpecialProperties()));
+        response.setAverageRating(product.getAverageRating());
+        response.setTotalReviews(product.getTotalReviews());
+        response.setTotalStock(product.getTotalStock());
+        response.setMainImageUrl(product.getMainImageUrl());
+        response.setCreatedAt(product.getCreatedAt());
+        response.setUpdatedAt(product.getUpdatedAt());
+        return response;
+    }
+
+    public ProductSummaryResponse toSummaryResponse(ProductSummary summary) {
+        ProductSummaryResponse response = new ProductSummaryResponse();
+        response.setId(summary.getId());
+        response.setSku(summary.getSku());
+        response.setName(summary.getName());
+        response.setCategory(summary.getCategory());
+        response.setBrand(summary.getBrand());
+        response.setPrice(summary.getPrice());
+        response.setCurrency(summary.getCurrency());
+        response.setMainImageUrl(summary.getMainImageUrl());
+        response.setAverageRating(summary.getAverageRating());
+        response.setTotalReviews(summary.getTotalReviews());
+        response.setTotalStock(summary.getTotalStock());
+        response.setSpecialProperties(copy(summary.getSpecialProperties()));
+        return response;
+    }
+
+    public ProductVariation copy(ProductVariation variation) {
+        if (variation == null) {
+            return null;
+        }
+        return new ProductVariation(variation.getSku(), variation.getColor(), variation.getSize(),
+                variation.getPrice(), variation.getStockQuantity(), variation.getImageUrl(), variation.getIsActive());
+    }
+
+    public ProductSpecifications copy(ProductSpecifications specifications) {
+        if (specifications == null) {
+            return null;
+        }
+        return new ProductSpecifications(specifications.getConnectivity(), specifications.getBatteryLifeHours(),
+                specifications.getNoiseCancellation(),
+                specifications.getColorOptions() != null ? new ArrayList<>(specifications.getColorOptions()) : null,
+                specifications.getWeight(), specifications.getDimensions(), specifications.getWarranty(),
+                specifications.getMaterial(),
+                specifications.getAdditionalSpecs() != null ? new HashMap<>(specifications.getAdditionalSpecs()) : null);
+    }
+
+    public SpecialProperties copy(SpecialProperties specialProperties) {
+        if (specialProperties == null) {
+            return null;
+        }
+        SpecialProperties copy = new SpecialProperties();
+        copy.setNewArrival(specialProperties.getNewArrival());
+        copy.setHasOffer(specialProperties.getHasOffer());
+        copy.setBestSeller(specialProperties.getBestSeller());
+        return copy;
+    }
+
+    private List<ProductVariation> copyVariations(List<ProductVariation> variations) {
+        if (variations == null) {
+            return new ArrayList<>();
+        }
+        List<ProductVariation> copies = new ArrayList<>(variations.size());
+        for (ProductVariation variation : variations) {
+            copies.add(copy(variation));
+        }
+        return copies;
+    }
+}
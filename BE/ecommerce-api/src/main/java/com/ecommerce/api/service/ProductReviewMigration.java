@@ -0,0 +1,143 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductReview;
+import com.ecommerce.api.repository.MigrationCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves reviews embedded in product documents (the old Product.reviews array) into the
+ * product_reviews collection and removes the array from the products.
+ *
+ * Each embedded review gets the deterministic id "productId-index" and is upserted, so a batch
+ * interrupted between copying the reviews and unsetting the array can simply be run again.
+ * Progress is kept in a MigrationCheckpoint like PriceDecimalMigration.
+ */
+@Service
+public class ProductReviewMigration {
+
+    public static final String MIGRATION_NAME = "product-reviews-collection";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MigrationCheckpointRepository checkpointRepository;
+
+    // Runs before the web server starts: saving a Product would otherwise drop its embedded reviews
+    @PostConstruct
+    public void onStartup() {
+        try {
+            ensureReviewIndexes();
+            MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME).orElse(null);
+            if (checkpoint == null || !Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                migrate();
+            }
+        } catch (Exception e) {
+            System.err.println("Error moving product reviews to their own collection: " + e.getMessage());
+        }
+    }
+
+    // Creates the indexes declared on ProductReview, automatic index creation is off
+    public void ensureReviewIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(ProductReview.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(ProductReview.class)
+                .forEach(indexOperations::ensureIndex);
+    }
+
+    public MigrationCheckpoint migrate() {
+        MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME)
+                .orElseGet(() -> new MigrationCheckpoint(MIGRATION_NAME));
+        String productCollection = mongoTemplate.getCollectionName(Product.class);
+        String reviewCollection = mongoTemplate.getCollectionName(ProductReview.class);
+
+        while (true) {
+            Query query = new Query(Criteria.where("reviews").exists(true));
+            if (checkpoint.getLastProcessedId() != null) {
+                query.addCriteria(Criteria.where("_id").gt(checkpoint.getLastProcessedId()));
+            }
+            query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(BATCH_SIZE);
+            query.fields().include("reviews");
+
+            List<Document> batch = mongoTemplate.find(query, Document.class, productCollection);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            BulkOperations reviewOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, reviewCollection);
+            List<Object> productIds = new ArrayList<>();
+            int copiedReviews = 0;
+            for (Document product : batch) {
+                Object productId = product.get("_id");
+                productIds.add(productId);
+
+                Object reviews = product.get("reviews");
+                if (!(reviews instanceof List)) {
+                    continue;
+                }
+                List<?> reviewList = (List<?>) reviews;
+                for (int i = 0; i < reviewList.size(); i++) {
+                    if (reviewList.get(i) instanceof Document) {
+                        String productIdValue = productId instanceof ObjectId
+                                ? ((ObjectId) productId).toHexString() : String.valueOf(productId);
+                        Document review = (Document) reviewList.get(i);
+                        reviewOperations.upsert(
+                                new Query(Criteria.where("_id").is(productIdValue + "-" + i)),
+                                buildReviewUpdate(productIdValue, review));
+                        copiedReviews++;
+                    }
+                }
+            }
+            if (copiedReviews > 0) {
+                reviewOperations.execute();
+            }
+
+            // Only drop the arrays once their reviews have been written
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(productIds)),
+                    new Update().unset("reviews"), productCollection);
+
+            checkpoint.setLastProcessedId(batch.get(batch.size() - 1).get("_id"));
+            checkpoint.setProcessedCount(checkpoint.getProcessedCount() + batch.size());
+            checkpoint.setUpdatedCount(checkpoint.getUpdatedCount() + copiedReviews);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        System.out.println("Product review migration finished: " + checkpoint.getProcessedCount()
+                + " products processed, " + checkpoint.getUpdatedCount() + " reviews moved");
+        return checkpoint;
+    }
+
+    private Update buildReviewUpdate(String productId, Document review) {
+        Update update = new Update().set("productId", productId);
+        for (String field : List.of("userId", "rating", "comment", "date", "isVerifiedPurchase", "isApproved")) {
+            if (review.containsKey(field)) {
+                update.set(field, review.get(field));
+            }
+        }
+        return update;
+    }
+}
@@ -0,0 +1,261 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the searchable product fields (name, description, brand,
+ * category and subCategory). Postings map each term to the ids of the products containing it,
+ * and hits are ranked with a field-weighted BM25 score.
+ *
+ * The index is built once the application is ready and kept in sync through ProductChangedEvent.
+ * Until the first build completes, isReady() returns false and callers should fall back to Mongo.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Field boosts, a match in the name counts more than one in the description
+    private static final float NAME_BOOST = 3.0f;
+    private static final float BRAND_BOOST = 2.0f;
+    private static final float CATEGORY_BOOST = 1.5f;
+    private static final float SUB_CATEGORY_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Query terms also match indexed terms they are a prefix of ("sams" -> "samsung"),
+    // scored lower than exact matches and capped so short prefixes stay cheap
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> field weighted term frequency)
+    private final TreeMap<String, Map<String, Float>> postings = new TreeMap<>();
+
+    // productId -> indexed terms and weighted length, needed to remove or replace a product
+    private final Map<String, IndexedDocument> documents = new HashMap<>();
+
+    private double totalLength;
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query(Criteria.where("isActive").is(true));
+        query.fields().include("name", "description", "brand", "category", "subCategory", "isActive");
+
+        lock.writeLock().lock();
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            products.forEach(this::addDocument);
+            ready = true;
+            System.out.println("Product search index built with " + documents.size() + " products and "
+                    + postings.size() + " terms");
+        } catch (Exception e) {
+            System.err.println("Error building product search index: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isRemoval()) {
+            remove(event.getProduct().getId());
+        } else {
+            index(event.getProduct());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Add or replace a product in the index
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        if (productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the products matching every term of the query, most relevant first
+     */
+    public List<String> search(String text) {
+        List<String> queryTerms = tokenize(text).stream().distinct().collect(Collectors.toList());
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Double> scores = null;
+        lock.readLock().lock();
+        try {
+            double averageLength = documents.isEmpty() ? 1.0 : totalLength / documents.size();
+            for (String queryTerm : queryTerms) {
+                Map<String, Double> termScores = scoreTerm(queryTerm, averageLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every query term has to match (AND semantics)
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((productId, score) -> score + termScores.get(productId));
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    // Must be called with the read lock held
+    private Map<String, Double> scoreTerm(String queryTerm, double averageLength) {
+        Map<String, Double> scores = new HashMap<>();
+
+        Map<String, Float> exactPostings = postings.get(queryTerm);
+        if (exactPostings != null) {
+            accumulate(scores, exactPostings, 1.0, averageLength);
+        }
+
+        int expansions = 0;
+        for (Map.Entry<String, Map<String, Float>> entry : postings.tailMap(queryTerm, false).entrySet()) {
+            if (!entry.getKey().startsWith(queryTerm) || ++expansions > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            accumulate(scores, entry.getValue(), PREFIX_MATCH_WEIGHT, averageLength);
+        }
+
+        return scores;
+    }
+
+    private void accumulate(Map<String, Double> scores, Map<String, Float> termPostings,
+                            double weight, double averageLength) {
+        int documentCount = documents.size();
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+        for (Map.Entry<String, Float> posting : termPostings.entrySet()) {
+            IndexedDocument document = documents.get(posting.getKey());
+            double termFrequency = posting.getValue();
+            double norm = K1 * (1 - B + B * document.length / averageLength);
+            double score = weight * idf * (termFrequency * (K1 + 1)) / (termFrequency + norm);
+            // When several indexed terms match the same query term keep the best one
+            scores.merge(posting.getKey(), score, Math::max);
+        }
+    }
+
+    // Must be called with the write lock held
+    private void addDocument(Product product) {
+        Map<String, Float> termFrequencies = new HashMap<>();
+        addField(termFrequencies, product.getName(), NAME_BOOST);
+        addField(termFrequencies, product.getBrand(), BRAND_BOOST);
+        addField(termFrequencies, product.getCategory(), CATEGORY_BOOST);
+        addField(termFrequencies, product.getSubCategory(), SUB_CATEGORY_BOOST);
+        addField(termFrequencies, product.getDescription(), DESCRIPTION_BOOST);
+
+        float length = 0;
+        for (Map.Entry<String, Float> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                    .put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+
+        documents.put(product.getId(), new IndexedDocument(termFrequencies.keySet().toArray(new String[0]), length));
+        totalLength += length;
+    }
+
+    // Must be called with the write lock held
+    private void removeDocument(String productId) {
+        IndexedDocument document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Map<String, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= document.length;
+    }
+
+    private void addField(Map<String, Float> termFrequencies, String value, float boost) {
+        for (String token : tokenize(value)) {
+            termFrequencies.merge(token, boost, Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static class IndexedDocument {
+        private final String[] terms;
+        private final float length;
+
+        private IndexedDocument(String[] terms, float length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
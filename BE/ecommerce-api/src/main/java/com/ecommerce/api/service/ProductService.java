@@ -1,19 +1,29 @@
 package com.ecommerce.api.service;
 
 import com.ecommerce.api.dto.CategoryFilterDto;
+import com.ecommerce.api.dto.CursorPage;
+import com.ecommerce.api.dto.FacetedPage;
+import com.ecommerce.api.dto.FilterFacetDto;
 import com.ecommerce.api.dto.ProductRequest;
 import com.ecommerce.api.dto.ProductResponse;
 import com.ecommerce.api.dto.ProductReviewRequest;
 import com.ecommerce.api.dto.ProductReviewResponse;
+import com.ecommerce.api.dto.ProductSummaryResponse;
+import com.ecommerce.api.dto.SuggestionResponse;
 import com.ecommerce.api.entity.Product;
 import com.ecommerce.api.entity.ProductReview;
+import com.ecommerce.api.entity.ProductSummary;
+import com.ecommerce.api.entity.ProductVariation;
 import com.ecommerce.api.repository.ProductRepository;
-import org.modelmapper.ModelMapper;
+import com.ecommerce.api.repository.ProductReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -24,19 +34,47 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
+    private static final Set<String> COUNT_MODES = Set.of("none", "exact", "estimated");
+
+    // Estimated counts stop at this many matches
+    private static final int ESTIMATED_COUNT_LIMIT = 1000;
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
 
     @Autowired
     private CategoryFilterService categoryFilterService;
 
-    public Page<ProductResponse> getAllProducts(Pageable pageable) {
-        // Use the more flexible query that includes products with null isActive
-        Page<Product> products = productRepository.findActiveOrNullProducts(pageable);
-        return products.map(this::convertToResponse);
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductAttributeIndex productAttributeIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductCursorCodec productCursorCodec;
+
+    @Autowired
+    private ProductReviewRepository productReviewRepository;
+
+    @Autowired
+    private FlashSaleStockService flashSaleStockService;
+
+    @Autowired
+    private ProductActiveFlagBackfill productActiveFlagBackfill;
+
+    public Page<ProductSummaryResponse> getAllProducts(Pageable pageable) {
+        Page<ProductSummary> products = productRepository.findActiveProducts(pageable);
+        return products.map(this::convertToSummaryResponse);
     }
 
     // Debug method to get all products regardless of isActive status
@@ -45,36 +83,121 @@ public class ProductService {
         return products.map(this::convertToResponse);
     }
 
-    public Page<ProductResponse> getAllProducts(Pageable pageable, String category, String subCategory, 
+    public Page<ProductSummaryResponse> getAllProducts(Pageable pageable, String category, String subCategory, 
                                               String brand, BigDecimal minPrice, BigDecimal maxPrice) {
         if (category == null && subCategory == null && brand == null && minPrice == null && maxPrice == null) {
             return getAllProducts(pageable);
         }
 
-        // Set default values for null parameters
-        if (minPrice == null) minPrice = BigDecimal.ZERO;
-        if (maxPrice == null) maxPrice = new BigDecimal("999999.99");
+        Page<ProductSummary> products = productRepository.findByFilters(category, subCategory, brand, minPrice, maxPrice, pageable);
+        return products.map(this::convertToSummaryResponse);
+    }
 
-        Page<Product> products = productRepository.findByFilters(category, subCategory, brand, minPrice, maxPrice, pageable);
-        return products.map(this::convertToResponse);
+    // Attribute-based filtering, optionally with per-option counts for the category's filters
+    public Page<ProductSummaryResponse> getProductsWithAttributeFilters(Pageable pageable, String category,
+                                                               Map<String, Object> attributeFilters,
+                                                               boolean includeFacets) {
+        Page<ProductSummaryResponse> products = getProductsWithAttributeFilters(pageable, category, attributeFilters);
+        if (!includeFacets) {
+            return products;
+        }
+        return new FacetedPage<>(products, getFilterFacets(category, attributeFilters));
+    }
+
+    // Facets are only computed from the attribute index, an empty list is returned while it is unavailable
+    public List<FilterFacetDto> getFilterFacets(String category, Map<String, Object> attributeFilters) {
+        if (category == null || category.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        Optional<CategoryFilterDto> categoryFilter = categoryFilterService.getCategoryByName(category);
+        if (categoryFilter.isEmpty() || categoryFilter.get().getFilters() == null) {
+            return new ArrayList<>();
+        }
+        return productAttributeIndex.computeFacets(category, attributeFilters, categoryFilter.get().getFilters())
+                .orElseGet(ArrayList::new);
     }
 
     // New method for attribute-based filtering
-    public Page<ProductResponse> getProductsWithAttributeFilters(Pageable pageable, String category, 
+    public Page<ProductSummaryResponse> getProductsWithAttributeFilters(Pageable pageable, String category, 
                                                                Map<String, Object> attributeFilters) {
-        Page<Product> products;
+        // Answer from the in-memory bitmap index when it covers the requested filters and sort
+        Optional<Page<String>> indexedPage = productAttributeIndex.findIds(category, attributeFilters, pageable);
+        if (indexedPage.isPresent()) {
+            Page<String> ids = indexedPage.get();
+            return new PageImpl<>(loadInOrder(ids.getContent()), pageable, ids.getTotalElements());
+        }
+
+        Page<ProductSummary> products;
         
         if (attributeFilters == null || attributeFilters.isEmpty()) {
             if (category != null && !category.isEmpty()) {
                 products = productRepository.findByCategoryWithActiveFilter(category, pageable);
             } else {
-                products = getAllProducts(pageable).map(response -> modelMapper.map(response, Product.class));
+                products = productRepository.findActiveProducts(pageable);
             }
         } else {
             products = productRepository.findByAttributeFilters(category, attributeFilters, pageable);
         }
         
-        return products.map(this::convertToResponse);
+        return products.map(this::convertToSummaryResponse);
+    }
+
+    /**
+     * Cursor (keyset) pagination over the same listings as getProductsWithAttributeFilters.
+     * Each page continues after the sort keys of the previous page's last product instead of
+     * skipping, and the total is only counted when asked for (countMode none, exact or estimated).
+     * Returns empty when the cursor, sort or count mode is invalid.
+     */
+    public Optional<CursorPage<ProductSummaryResponse>> getProductsByCursor(String category, Map<String, Object> attributeFilters,
+                                                                    Sort sort, int size, String cursor, String countMode) {
+        if (size < 1 || !COUNT_MODES.contains(countMode) || !productCursorCodec.supports(sort)) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> afterKeys = null;
+        if (cursor != null && !cursor.isBlank()) {
+            Optional<Map<String, Object>> decoded = productCursorCodec.decode(cursor, sort);
+            if (decoded.isEmpty()) {
+                return Optional.empty();
+            }
+            afterKeys = decoded.get();
+        }
+
+        // One extra product tells whether there is a next page
+        Product after = afterKeys != null ? productCursorCodec.toProduct(afterKeys) : null;
+        List<ProductSummary> products = productAttributeIndex.findIdsAfter(category, attributeFilters, sort, after, size + 1)
+                .map(this::loadProductsInOrder)
+                .orElse(null);
+        if (products == null) {
+            products = productRepository.findActiveProductsAfter(category, attributeFilters, sort, afterKeys, size + 1);
+        }
+
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
+        }
+
+        CursorPage<ProductSummaryResponse> page = new CursorPage<>();
+        page.setContent(products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList()));
+        page.setSize(page.getContent().size());
+        page.setHasNext(hasNext);
+        page.setNextCursor(hasNext ? productCursorCodec.encode(products.get(products.size() - 1), sort) : null);
+
+        if (!countMode.equals("none")) {
+            Optional<Long> indexedCount = productAttributeIndex.countMatches(category, attributeFilters);
+            if (indexedCount.isPresent()) {
+                page.setTotalElements(indexedCount.get());
+                page.setTotalElementsExact(true);
+            } else {
+                // An estimate stops counting at ESTIMATED_COUNT_LIMIT matches
+                int limit = countMode.equals("estimated") ? ESTIMATED_COUNT_LIMIT : 0;
+                long total = productRepository.countActiveProducts(category, attributeFilters, limit);
+                page.setTotalElements(total);
+                page.setTotalElementsExact(limit == 0 || total < limit);
+            }
+        }
+
+        return Optional.of(page);
     }
 
     public Optional<ProductResponse> getProductById(String id) {
@@ -82,6 +205,23 @@ public class ProductService {
         return product.filter(p -> p.getIsActive()).map(this::convertToResponse);
     }
 
+    /**
+     * Resolves the active products with the given ids in a single query, keyed by id. Ids of
+     * missing or inactive products are left out of the map. Description, specifications and
+     * attributes are not loaded.
+     */
+    public Map<String, ProductResponse> getProductsByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> distinctIds = new HashSet<>(ids);
+        Map<String, ProductResponse> products = new HashMap<>();
+        for (Product product : productRepository.findLineItemProductsByIdIn(distinctIds)) {
+            products.put(product.getId(), convertToResponse(product));
+        }
+        return products;
+    }
+
     public Optional<ProductResponse> getProductBySku(String sku) {
         Optional<Product> product = productRepository.findBySkuAndIsActiveTrue(sku);
         return product.map(this::convertToResponse);
@@ -95,57 +235,97 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct));
         return convertToResponse(savedProduct);
     }
 
+    // Only the edited fields are $set, the rating counters (and stock moved by orders in between
+    // for a delete) are never rewritten from a stale copy of the product
     public Optional<ProductResponse> updateProduct(String id, ProductRequest request) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            mapRequestToProduct(request, product);
-            product.setUpdatedAt(LocalDateTime.now());
-
-            Product updatedProduct = productRepository.save(product);
-            return Optional.of(convertToResponse(updatedProduct));
-        }
-        return Optional.empty();
+        Optional<Product> updatedProduct = productRepository.updateFields(id, toUpdate(request));
+        updatedProduct.ifPresent(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+        return updatedProduct.map(this::convertToResponse);
     }
 
     public boolean deleteProduct(String id) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setIsActive(false); // Soft delete
-            product.setUpdatedAt(LocalDateTime.now());
-            productRepository.save(product);
-            return true;
-        }
-        return false;
+        Update update = new Update()
+                .set("isActive", false) // Soft delete
+                .set("updatedAt", LocalDateTime.now());
+        Optional<Product> deletedProduct = productRepository.updateFields(id, update);
+        deletedProduct.ifPresent(product -> eventPublisher.publishEvent(new ProductChangedEvent(product)));
+        return deletedProduct.isPresent();
     }
 
-    public List<ProductResponse> getProductsByCategory(String category) {
-        List<Product> products = productRepository.findByCategoryAndIsActiveTrue(category);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+    public List<ProductSummaryResponse> getProductsByCategory(String category) {
+        List<ProductSummary> products = productRepository.findByCategoryAndIsActiveTrue(category);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
-    public List<ProductResponse> getProductsBySubCategory(String category, String subCategory) {
-        List<Product> products = productRepository.findByCategoryAndSubCategoryAndIsActiveTrue(category, subCategory);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+    public List<ProductSummaryResponse> getProductsBySubCategory(String category, String subCategory) {
+        List<ProductSummary> products = productRepository.findByCategoryAndSubCategoryAndIsActiveTrue(category, subCategory);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
-    public List<ProductResponse> getProductsByBrand(String brand) {
-        List<Product> products = productRepository.findByBrandAndIsActiveTrue(brand);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+    public List<ProductSummaryResponse> getProductsByBrand(String brand) {
+        List<ProductSummary> products = productRepository.findByBrandAndIsActiveTrue(brand);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
-    public Page<ProductResponse> searchProducts(String query, Pageable pageable) {
-        Page<Product> products = productRepository.findBySearchQuery(query, pageable);
-        return products.map(this::convertToResponse);
+    // Type-ahead suggestions for the search box, answered from memory only
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        return productSuggestIndex.suggest(prefix, limit);
+    }
+
+    public Page<ProductSummaryResponse> searchProducts(String query, Pageable pageable) {
+        if (!productSearchIndex.isReady()) {
+            // Index is still being built, fall back to the regex scan
+            Page<ProductSummary> products = productRepository.findBySearchQuery(query, pageable);
+            return products.map(this::convertToSummaryResponse);
+        }
+
+        List<String> rankedIds = productSearchIndex.search(query);
+        if (rankedIds.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        // An explicit sort overrides relevance, let Mongo order the matched ids
+        if (pageable.getSort().isSorted()) {
+            Page<ProductSummary> products = productRepository.findByIdIn(rankedIds, pageable);
+            return products.map(this::convertToSummaryResponse);
+        }
+
+        int start = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int end = Math.min(start + pageable.getPageSize(), rankedIds.size());
+        List<String> pageIds = rankedIds.subList(start, end);
+
+        // Keep the relevance order of the index
+        return new PageImpl<>(loadInOrder(pageIds), pageable, rankedIds.size());
     }
 
-    public List<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        List<Product> products = productRepository.findByPriceBetweenAndIsActiveTrue(minPrice, maxPrice);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+    // Loads products by id in one query, keeping the order of the given ids
+    private List<ProductSummaryResponse> loadInOrder(List<String> ids) {
+        return loadProductsInOrder(ids).stream()
+                .map(this::convertToSummaryResponse)
+                .collect(Collectors.toList());
+    }
+
+    private List<ProductSummary> loadProductsInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, ProductSummary> productsById = new HashMap<>();
+        productRepository.findByIdIn(ids).forEach(product -> productsById.put(product.getId(), product));
+
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductSummaryResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        List<ProductSummary> products = productRepository.findByPriceBetweenAndIsActiveTrue(minPrice, maxPrice);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
     public List<String> getAllCategories() {
@@ -219,187 +399,140 @@ public class ProductService {
     }
 
     public Optional<ProductReviewResponse> addProductReview(String productId, ProductReviewRequest request) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            
-            ProductReview review = new ProductReview();
-            review.setUserId(request.getUserId());
-            review.setRating(request.getRating());
-            review.setComment(request.getComment());
-            review.setDate(LocalDateTime.now());
-            review.setIsVerifiedPurchase(request.getIsVerifiedPurchase());
-            review.setIsApproved(true); // Auto-approve for now
-            
-            product.addReview(review);
-            product.setUpdatedAt(LocalDateTime.now());
-            
-            productRepository.save(product);
-            
-            ProductReviewResponse response = new ProductReviewResponse();
-            response.setUserId(review.getUserId());
-            response.setRating(review.getRating());
-            response.setComment(review.getComment());
-            response.setDate(review.getDate());
-            response.setIsVerifiedPurchase(review.getIsVerifiedPurchase());
-            response.setIsApproved(review.getIsApproved());
-            
-            return Optional.of(response);
+        if (!productRepository.existsById(productId)) {
+            return Optional.empty();
         }
-        return Optional.empty();
+
+        ProductReview review = new ProductReview();
+        review.setProductId(productId);
+        review.setUserId(request.getUserId());
+        review.setRating(request.getRating());
+        review.setComment(request.getComment());
+        review.setDate(LocalDateTime.now());
+        review.setIsVerifiedPurchase(request.getIsVerifiedPurchase());
+        review.setIsApproved(true); // Auto-approve for now
+
+        productReviewRepository.save(review);
+        productRepository.incrementRatingStats(productId, review.getRating());
+
+        return Optional.of(convertToReviewResponse(review));
     }
 
     public Page<ProductReviewResponse> getProductReviews(String productId, Pageable pageable) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            List<ProductReview> reviews = product.getReviews();
-            
-            if (reviews == null || reviews.isEmpty()) {
-                return new PageImpl<>(Collections.emptyList(), pageable, 0);
-            }
-            
-            // Filter approved reviews and sort by date (newest first)
-            List<ProductReviewResponse> reviewResponses = reviews.stream()
-                    .filter(review -> review.getIsApproved() != null && review.getIsApproved())
-                    .sorted((r1, r2) -> r2.getDate().compareTo(r1.getDate()))
-                    .map(review -> {
-                        ProductReviewResponse response = new ProductReviewResponse();
-                        response.setUserId(review.getUserId());
-                        response.setRating(review.getRating());
-                        response.setComment(review.getComment());
-                        response.setDate(review.getDate());
-                        response.setIsVerifiedPurchase(review.getIsVerifiedPurchase());
-                        response.setIsApproved(review.getIsApproved());
-                        return response;
-                    })
-                    .collect(Collectors.toList());
-            
-            // Manual pagination
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), reviewResponses.size());
-            List<ProductReviewResponse> pageContent = reviewResponses.subList(start, end);
-            
-            return new PageImpl<>(pageContent, pageable, reviewResponses.size());
-        }
-        return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        return productReviewRepository.findByProductIdAndIsApprovedTrue(productId, pageable)
+                .map(this::convertToReviewResponse);
     }
 
+    // Read from the counters kept on the product, no review is loaded
     public Map<String, Object> getProductRatingSummary(String productId) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        Map<String, Object> summary = new HashMap<>();
-        
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            List<ProductReview> reviews = product.getReviews();
-            
-            if (reviews == null || reviews.isEmpty()) {
-                summary.put("averageRating", 0.0);
-                summary.put("totalReviews", 0);
-                summary.put("ratingDistribution", Map.of(1, 0, 2, 0, 3, 0, 4, 0, 5, 0));
-                return summary;
-            }
-            
-            List<ProductReview> approvedReviews = reviews.stream()
-                    .filter(review -> review.getIsApproved() != null && review.getIsApproved())
-                    .collect(Collectors.toList());
-            
-            summary.put("averageRating", product.getAverageRating());
-            summary.put("totalReviews", approvedReviews.size());
-            
-            // Rating distribution
-            Map<Integer, Long> distribution = approvedReviews.stream()
-                    .collect(Collectors.groupingBy(ProductReview::getRating, Collectors.counting()));
-            
-            Map<Integer, Integer> ratingDistribution = new HashMap<>();
-            for (int i = 1; i <= 5; i++) {
-                ratingDistribution.put(i, distribution.getOrDefault(i, 0L).intValue());
-            }
-            summary.put("ratingDistribution", ratingDistribution);
-        } else {
-            summary.put("averageRating", 0.0);
-            summary.put("totalReviews", 0);
-            summary.put("ratingDistribution", Map.of(1, 0, 2, 0, 3, 0, 4, 0, 5, 0));
+        Optional<Product> stats = productRepository.findRatingStatsById(productId);
+
+        Map<String, Integer> histogram = stats.map(Product::getRatingHistogram).orElse(null);
+        Map<Integer, Integer> ratingDistribution = new HashMap<>();
+        for (int i = 1; i <= 5; i++) {
+            Integer count = histogram != null ? histogram.get(String.valueOf(i)) : null;
+            ratingDistribution.put(i, count != null ? count : 0);
         }
-        
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("averageRating", stats.map(Product::getAverageRating).orElse(0.0));
+        summary.put("totalReviews", stats.map(Product::getTotalReviews).orElse(0));
+        summary.put("ratingDistribution", ratingDistribution);
         return summary;
     }
 
+    private ProductReviewResponse convertToReviewResponse(ProductReview review) {
+        ProductReviewResponse response = new ProductReviewResponse();
+        response.setUserId(review.getUserId());
+        response.setRating(review.getRating());
+        response.setComment(review.getComment());
+        response.setDate(review.getDate());
+        response.setIsVerifiedPurchase(review.getIsVerifiedPurchase());
+        response.setIsApproved(review.getIsApproved());
+        return response;
+    }
+
     public Optional<ProductResponse> updateProductStock(String productId, Integer newStock) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setStockQuantity(newStock);
-            product.setUpdatedAt(LocalDateTime.now());
-            
-            Product updatedProduct = productRepository.save(product);
-            return Optional.of(convertToResponse(updatedProduct));
+        if (newStock == null || newStock < 0) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        Optional<Product> product = productRepository.setStock(productId, null, newStock);
+        product.ifPresent(p -> flashSaleStockService.reset(productId, null, newStock));
+        return product.map(this::convertToResponse);
     }
 
     public Optional<ProductResponse> updateVariationStock(String productId, String variationSku, Integer newStock) {
-        Optional<Product> optionalProduct = productRepository.findById(productId);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            
-            if (product.getVariations() != null) {
-                product.getVariations().stream()
-                        .filter(variation -> variation.getSku().equals(variationSku))
-                        .findFirst()
-                        .ifPresent(variation -> variation.setStockQuantity(newStock));
-                
-                product.setUpdatedAt(LocalDateTime.now());
-                Product updatedProduct = productRepository.save(product);
-                return Optional.of(convertToResponse(updatedProduct));
+        if (variationSku == null || newStock == null || newStock < 0) {
+            return Optional.empty();
+        }
+        Optional<Product> product = productRepository.setStock(productId, variationSku, newStock);
+        product.ifPresent(p -> flashSaleStockService.reset(productId, variationSku, newStock));
+        return product.map(this::convertToResponse);
+    }
+
+    /**
+     * Adds delta (negative to take items out) to the stock of a product, or of one of its variations
+     * when variationSku is set, in a single atomic write. Decrements never take the stock below zero.
+     * Returns the stock left after the change, empty when the product or variation does not exist
+     * or there is not enough stock.
+     */
+    public Optional<Integer> adjustStock(String productId, String variationSku, int delta) {
+        // Flash-sale SKUs are admitted by their in-memory counter first, sold out ones never reach Mongo
+        if (delta < 0 && !flashSaleStockService.tryTake(productId, variationSku, -delta)) {
+            return Optional.empty();
+        }
+        Optional<Product> updated;
+        try {
+            updated = productRepository.adjustStock(productId, variationSku, delta);
+        } catch (RuntimeException e) {
+            if (delta < 0) {
+                flashSaleStockService.giveBack(productId, variationSku, -delta);
             }
+            throw e;
+        }
+        if (delta > 0 ? updated.isPresent() : updated.isEmpty()) {
+            flashSaleStockService.giveBack(productId, variationSku, Math.abs(delta));
         }
-        return Optional.empty();
+        return updated
+                .map(product -> variationSku == null ? product.getStockQuantity()
+                        : product.getVariations().stream()
+                                .filter(variation -> variationSku.equals(variation.getSku()))
+                                .map(ProductVariation::getStockQuantity)
+                                .findFirst()
+                                .orElse(null));
     }
 
-    public List<ProductResponse> getFeaturedProducts(int limit) {
+    public List<ProductSummaryResponse> getFeaturedProducts(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
-        List<Product> products = productRepository.findFeaturedProducts(pageable);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+        List<ProductSummary> products = productRepository.findFeaturedProducts(pageable);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
-    public List<ProductResponse> getLowStockProducts(int threshold) {
-        List<Product> products = productRepository.findLowStockProducts(threshold);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+    public List<ProductSummaryResponse> getLowStockProducts(int threshold) {
+        List<ProductSummary> products = productRepository.findLowStockProducts(threshold);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
-    public List<ProductResponse> getTopRatedProducts(int limit, Double minRating) {
+    public List<ProductSummaryResponse> getTopRatedProducts(int limit, Double minRating) {
         Pageable pageable = PageRequest.of(0, limit);
-        List<Product> products = productRepository.findTopRatedProducts(minRating, pageable);
-        return products.stream().map(this::convertToResponse).collect(Collectors.toList());
+        List<ProductSummary> products = productRepository.findTopRatedProducts(minRating, pageable);
+        return products.stream().map(this::convertToSummaryResponse).collect(Collectors.toList());
     }
 
     // Utility method to fix existing products that don't have isActive field
     public long fixMissingIsActiveField() {
-        List<Product> allProducts = productRepository.findAll();
-        long updatedCount = 0;
-        
-        for (Product product : allProducts) {
-            if (product.getIsActive() == null) {
-                product.setIsActive(true);
-                product.setUpdatedAt(LocalDateTime.now());
-                productRepository.save(product);
-                updatedCount++;
-            }
-        }
-        
-        return updatedCount;
+        return productActiveFlagBackfill.backfill().getUpdatedCount();
     }
 
     // Alternative method using the new repository query
-    public Page<ProductResponse> getAllActiveProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findActiveOrNullProducts(pageable);
-        return products.map(this::convertToResponse);
+    public Page<ProductSummaryResponse> getAllActiveProducts(Pageable pageable) {
+        Page<ProductSummary> products = productRepository.findActiveProducts(pageable);
+        return products.map(this::convertToSummaryResponse);
     }
 
     // New method to get products by special properties
-    public List<ProductResponse> getProductsBySpecialProperty(String propertyType, int limit) {
-        List<Product> products;
+    public List<ProductSummaryResponse> getProductsBySpecialProperty(String propertyType, int limit) {
+        List<ProductSummary> products;
         
         switch (propertyType.toLowerCase()) {
             case "newarrival":
@@ -419,35 +552,49 @@ public class ProductService {
         }
         
         return products.stream()
-                .map(this::convertToResponse)
+                .map(this::convertToSummaryResponse)
                 .collect(Collectors.toList());
     }
 
-    // Get all special products in one response
-    public Map<String, List<ProductResponse>> getAllSpecialProducts(int limitPerType) {
-        Map<String, List<ProductResponse>> specialProducts = new HashMap<>();
-        
-        // Get new arrivals
-        List<Product> newArrivals = productRepository.findBySpecialPropertiesNewArrivalTrueAndIsActiveTrue(PageRequest.of(0, limitPerType));
-        specialProducts.put("newArrivals", newArrivals.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
-        
-        // Get products with offers
-        List<Product> productsWithOffers = productRepository.findBySpecialPropertiesHasOfferTrueAndIsActiveTrue(PageRequest.of(0, limitPerType));
-        specialProducts.put("productsWithOffers", productsWithOffers.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
-        
-        // Get best sellers
-        List<Product> bestSellers = productRepository.findBySpecialPropertiesBestSellerTrueAndIsActiveTrue(PageRequest.of(0, limitPerType));
-        specialProducts.put("bestSellers", bestSellers.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
-        
+    // Get all special products in one response, all three groups come from a single aggregation
+    public Map<String, List<ProductSummaryResponse>> getAllSpecialProducts(int limitPerType) {
+        Map<String, List<ProductSummary>> groups = productRepository.findSpecialProductGroups(limitPerType);
+
+        Map<String, List<ProductSummaryResponse>> specialProducts = new HashMap<>();
+        specialProducts.put("newArrivals", toSummaryResponses(groups.get("newArrival")));
+        specialProducts.put("productsWithOffers", toSummaryResponses(groups.get("hasOffer")));
+        specialProducts.put("bestSellers", toSummaryResponses(groups.get("bestSeller")));
         return specialProducts;
     }
 
+    private List<ProductSummaryResponse> toSummaryResponses(List<ProductSummary> products) {
+        return products.stream()
+                .map(this::convertToSummaryResponse)
+                .collect(Collectors.toList());
+    }
+
+    // Same fields as mapRequestToProduct, as a targeted update
+    private Update toUpdate(ProductRequest request) {
+        return new Update()
+                .set("sku", request.getSku())
+                .set("name", request.getName())
+                .set("description", request.getDescription())
+                .set("category", request.getCategory())
+                .set("subCategory", request.getSubCategory())
+                .set("brand", request.getBrand())
+                .set("price", request.getPrice())
+                .set("currency", request.getCurrency())
+                .set("stockQuantity", request.getStockQuantity())
+                .set("images", request.getImages())
+                .set("specifications", request.getSpecifications())
+                .set("attributes", request.getAttributes())
+                .set("variations", request.getVariations())
+                // Updates skip the BeforeConvertCallback, a missing flag keeps the product active
+                .set("isActive", !Boolean.FALSE.equals(request.getIsActive()))
+                .set("specialProperties", request.getSpecialProperties())
+                .set("updatedAt", LocalDateTime.now());
+    }
+
     private void mapRequestToProduct(ProductRequest request, Product product) {
         product.setSku(request.getSku());
         product.setName(request.getName());
@@ -466,15 +613,11 @@ public class ProductService {
         product.setSpecialProperties(request.getSpecialProperties());
     }
 
+    private ProductSummaryResponse convertToSummaryResponse(ProductSummary summary) {
+        return productMapper.toSummaryResponse(summary);
+    }
+
     private ProductResponse convertToResponse(Product product) {
-        ProductResponse response = modelMapper.map(product, ProductResponse.class);
-        
-        // Compute additional fields
-        response.setAverageRating(product.getAverageRating());
-        response.setTotalReviews(product.getTotalReviews());
-        response.setTotalStock(product.getTotalStock());
-        response.setMainImageUrl(product.getMainImageUrl());
-        
-        return response;
+        return productMapper.toResponse(product);
     }
 }
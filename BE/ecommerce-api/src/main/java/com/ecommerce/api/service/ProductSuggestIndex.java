@@ -0,0 +1,373 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.SuggestionResponse;
+import com.ecommerce.api.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Type-ahead suggestions over product names, brands, categories and subcategories, kept in an
+ * in-memory radix trie (edges hold whole label strings, single child chains are merged).
+ *
+ * Every phrase is inserted under each of its word starts, so "gal" suggests "Samsung Galaxy S23".
+ * A suggestion weighs the popularity of the products carrying it (1 + totalReviews each), and
+ * every node caches the top MAX_SUGGESTIONS suggestions of its subtree. A lookup is a walk down
+ * the prefix and a copy of that list, independent of the number of products. The caches along
+ * a phrase's paths are recomputed when its weight changes.
+ *
+ * Built once the application is ready and kept in sync through ProductChangedEvent, like
+ * ProductSearchIndex.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator
+            .comparingLong((Suggestion suggestion) -> suggestion.weight).reversed()
+            .thenComparing(suggestion -> suggestion.text);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node("");
+
+    // type + ":" + normalized text -> suggestion
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+
+    // productId -> what the product added, needed to take it back out on update or removal
+    private final Map<String, Contribution> contributions = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query(Criteria.where("isActive").is(true));
+        query.fields().include("name", "brand", "category", "subCategory", "totalReviews");
+
+        lock.writeLock().lock();
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            root.children.clear();
+            root.terminals.clear();
+            root.top = List.of();
+            suggestions.clear();
+            contributions.clear();
+            products.forEach(this::addProduct);
+            System.out.println("Product suggest index built with " + suggestions.size() + " suggestions");
+        } catch (Exception e) {
+            System.err.println("Error building product suggest index: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = event.getProduct();
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeProduct(product.getId());
+            if (!event.isRemoval()) {
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most popular suggestions starting with the prefix (at a word start), at most limit and
+     * never more than MAX_SUGGESTIONS
+     */
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<SuggestionResponse> results = new ArrayList<>(Math.min(limit, node.top.size()));
+            for (Suggestion suggestion : node.top) {
+                if (results.size() == limit) {
+                    break;
+                }
+                results.add(new SuggestionResponse(suggestion.text, suggestion.type));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Must be called with the write lock held
+    private void addProduct(Product product) {
+        long weight = 1 + (product.getTotalReviews() != null ? Math.max(product.getTotalReviews(), 0) : 0);
+        Set<String> ids = new LinkedHashSet<>();
+        addPhrase(ids, "name", product.getName(), weight);
+        addPhrase(ids, "brand", product.getBrand(), weight);
+        addPhrase(ids, "category", product.getCategory(), weight);
+        addPhrase(ids, "subCategory", product.getSubCategory(), weight);
+        contributions.put(product.getId(), new Contribution(ids, weight));
+    }
+
+    // Must be called with the write lock held
+    private void removeProduct(String productId) {
+        Contribution contribution = contributions.remove(productId);
+        if (contribution == null) {
+            return;
+        }
+        for (String id : contribution.suggestionIds) {
+            Suggestion suggestion = suggestions.get(id);
+            if (suggestion == null) {
+                continue;
+            }
+            suggestion.weight -= contribution.weight;
+            suggestion.productCount--;
+            if (suggestion.productCount <= 0) {
+                suggestions.remove(id);
+                for (String key : suggestion.keys) {
+                    remove(key, suggestion);
+                }
+            } else {
+                for (String key : suggestion.keys) {
+                    recompute(path(key));
+                }
+            }
+        }
+    }
+
+    private void addPhrase(Set<String> ids, String type, String text, long weight) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        String id = type + ":" + normalized;
+        if (!ids.add(id)) {
+            return;
+        }
+
+        Suggestion suggestion = suggestions.get(id);
+        if (suggestion == null) {
+            suggestion = new Suggestion(text.trim(), type, wordStarts(normalized));
+            suggestion.weight = weight;
+            suggestion.productCount = 1;
+            suggestions.put(id, suggestion);
+            for (String key : suggestion.keys) {
+                insert(key, suggestion);
+            }
+        } else {
+            suggestion.weight += weight;
+            suggestion.productCount++;
+            for (String key : suggestion.keys) {
+                recompute(path(key));
+            }
+        }
+    }
+
+    // The node whose subtree holds every key starting with prefix, null when there is none
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefixLength(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    // Nodes from the root to the node of exactly key, null when the trie does not hold key
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return null;
+            }
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        return path;
+    }
+
+    private void insert(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            char first = key.charAt(i);
+            Node child = node.children.get(first);
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(first, child);
+                i = key.length();
+            } else {
+                int common = commonPrefixLength(child.label, key, i);
+                if (common < child.label.length()) {
+                    // The key leaves the edge halfway, split it
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    middle.top = child.top;
+                    node.children.put(first, middle);
+                    child = middle;
+                }
+                i += common;
+            }
+            node = child;
+            path.add(node);
+        }
+        if (!node.terminals.contains(suggestion)) {
+            node.terminals.add(suggestion);
+        }
+        recompute(path);
+    }
+
+    private void remove(String key, Suggestion suggestion) {
+        List<Node> path = path(key);
+        if (path == null) {
+            return;
+        }
+        path.get(path.size() - 1).terminals.remove(suggestion);
+
+        // Drop emptied nodes and merge single child chains, bottom up
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            if (!node.terminals.isEmpty()) {
+                break;
+            }
+            if (node.children.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+                path.remove(i);
+            } else if (node.children.size() == 1) {
+                Node child = node.children.values().iterator().next();
+                child.label = node.label + child.label;
+                parent.children.put(child.label.charAt(0), child);
+                path.remove(i);
+                break;
+            } else {
+                break;
+            }
+        }
+        recompute(path);
+    }
+
+    // Recomputes the cached top suggestions of the nodes on the path, deepest first
+    private void recompute(List<Node> path) {
+        if (path == null) {
+            return;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            Set<Suggestion> candidates = new HashSet<>(node.terminals);
+            for (Node child : node.children.values()) {
+                candidates.addAll(child.top);
+            }
+            List<Suggestion> top = new ArrayList<>(candidates);
+            top.sort(BY_WEIGHT);
+            node.top = top.size() > MAX_SUGGESTIONS ? new ArrayList<>(top.subList(0, MAX_SUGGESTIONS)) : top;
+        }
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = 0;
+        while (length < label.length() && offset + length < key.length()
+                && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    // Lower case words separated by single spaces
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return SEPARATOR.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // The normalized phrase from each of its words on: "samsung galaxy s23", "galaxy s23", "s23"
+    private static List<String> wordStarts(String normalized) {
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private static class Node {
+        // Edge label from the parent
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>();
+        // Suggestions with a key ending at this node
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+        // Best suggestions of the subtree, best first
+        private List<Suggestion> top = List.of();
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    // Identity based equality on purpose, one instance per type and normalized text
+    private static class Suggestion {
+        private final String text;
+        private final String type;
+        private final List<String> keys;
+        private long weight;
+        private int productCount;
+
+        private Suggestion(String text, String type, List<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+    }
+
+    private static class Contribution {
+        private final Set<String> suggestionIds;
+        private final long weight;
+
+        private Contribution(Set<String> suggestionIds, long weight) {
+            this.suggestionIds = suggestionIds;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.MigrationCheckpoint;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductReview;
+import com.ecommerce.api.repository.MigrationCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * One-time backfill of the rating counters (ratingSum, totalReviews, ratingHistogram and
+ * averageRating) from the approved reviews in product_reviews.
+ *
+ * Runs before the web server starts and after ProductReviewMigration, so no review can be
+ * added while the counters are recomputed; afterwards they only change through
+ * ProductRepository.incrementRatingStats.
+ */
+@Service
+@DependsOn("productReviewMigration")
+public class RatingCountersMigration {
+
+    public static final String MIGRATION_NAME = "product-rating-counters";
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MigrationCheckpointRepository checkpointRepository;
+
+    @PostConstruct
+    public void onStartup() {
+        try {
+            // Counting before every embedded review has been moved would miss reviews
+            boolean reviewsMoved = checkpointRepository.findById(ProductReviewMigration.MIGRATION_NAME)
+                    .map(reviewCheckpoint -> Boolean.TRUE.equals(reviewCheckpoint.getCompleted()))
+                    .orElse(false);
+            MigrationCheckpoint checkpoint = checkpointRepository.findById(MIGRATION_NAME).orElse(null);
+            if (reviewsMoved && (checkpoint == null || !Boolean.TRUE.equals(checkpoint.getCompleted()))) {
+                migrate();
+            }
+        } catch (Exception e) {
+            System.err.println("Error backfilling product rating counters: " + e.getMessage());
+        }
+    }
+
+    public MigrationCheckpoint migrate() {
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint(MIGRATION_NAME);
+
+        // Approved review counts per (product, rating), gathered per product
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isApproved").is(true)),
+                Aggregation.group("productId", "rating").count().as("count"),
+                Aggregation.group("productId")
+                        .push(new Document("rating", "$_id.rating").append("count", "$count")).as("ratings")
+        ).withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        int pendingUpdates = 0;
+        try (Stream<Document> products = mongoTemplate.aggregateStream(aggregation,
+                mongoTemplate.getCollectionName(ProductReview.class), Document.class)) {
+            for (Document product : (Iterable<Document>) products::iterator) {
+                bulkOperations.updateOne(new Query(Criteria.where("id").is(product.get("_id"))),
+                        buildCounters(product.getList("ratings", Document.class)));
+                checkpoint.setUpdatedCount(checkpoint.getUpdatedCount() + 1);
+                if (++pendingUpdates == BATCH_SIZE) {
+                    bulkOperations.execute();
+                    bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+                    pendingUpdates = 0;
+                }
+            }
+        }
+        if (pendingUpdates > 0) {
+            bulkOperations.execute();
+        }
+
+        // Products without any approved review start from zero
+        long withoutReviews = mongoTemplate.updateMulti(new Query(Criteria.where("ratingSum").exists(false)),
+                buildCounters(List.of()), Product.class).getModifiedCount();
+
+        checkpoint.setProcessedCount(checkpoint.getUpdatedCount() + withoutReviews);
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        System.out.println("Rating counters backfilled for " + checkpoint.getProcessedCount() + " products");
+        return checkpoint;
+    }
+
+    private Update buildCounters(List<Document> ratings) {
+        Map<String, Integer> histogram = new HashMap<>();
+        for (int i = 1; i <= 5; i++) {
+            histogram.put(String.valueOf(i), 0);
+        }
+
+        long ratingSum = 0;
+        int totalReviews = 0;
+        for (Document rating : ratings) {
+            Object value = rating.get("rating");
+            if (!(value instanceof Number) || !histogram.containsKey(String.valueOf(((Number) value).intValue()))) {
+                continue;
+            }
+            int stars = ((Number) value).intValue();
+            int count = ((Number) rating.get("count")).intValue();
+            histogram.put(String.valueOf(stars), count);
+            ratingSum += (long) stars * count;
+            totalReviews += count;
+        }
+
+        return new Update()
+                .set("ratingSum", ratingSum)
+                .set("totalReviews", totalReviews)
+                .set("ratingHistogram", histogram)
+                .set("averageRating", totalReviews > 0 ? (double) ratingSum / totalReviews : 0.0);
+    }
+}
@@ -0,0 +1,194 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.entity.CartItem;
+import com.ecommerce.api.entity.StockReservation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Places and settles checkout stock holds (StockReservation).
+ *
+ * Holds take the units out of the product stock with the same guarded atomic decrement as
+ * checkout (ProductService.adjustStock), so contended SKUs never oversell and no lock is shared
+ * between SKUs. Every state change is a conditional findAndModify on the reservation, so a hold
+ * is settled exactly once even when the expiry sweep, a release and an order race for it.
+ */
+@Service
+public class StockReservationService {
+
+    // ORDERED holds that never got their order attached (the node died while placing it)
+    // are given back this long after they expired
+    private static final long ORPHANED_ORDER_GRACE_MINUTES = 10;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Value("${app.checkout.reservation-ttl-ms:900000}")
+    private long reservationTtlMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureReservationIndexes();
+            releaseExpired();
+        } catch (Exception e) {
+            System.err.println("Error preparing stock reservations: " + e.getMessage());
+        }
+    }
+
+    // Creates the indexes declared on StockReservation, automatic index creation is off
+    public void ensureReservationIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(StockReservation.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(StockReservation.class)
+                .forEach(indexOperations::ensureIndex);
+    }
+
+    /**
+     * Holds the stock of every item in the user's cart. Either every item is held or none is:
+     * empty when the cart is empty or an item does not have enough stock left.
+     */
+    public Optional<StockReservation> reserveCart(Long userId) {
+        List<CartItem> cartItems = cartStore.getItems(userId);
+        if (cartItems.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<StockReservation.Item> heldItems = new ArrayList<>();
+        for (CartItem cartItem : cartItems) {
+            if (productService.adjustStock(cartItem.getProductId(), cartItem.getVariationSku(),
+                    -cartItem.getQuantity()).isEmpty()) {
+                restock(heldItems);
+                return Optional.empty();
+            }
+            heldItems.add(new StockReservation.Item(cartItem.getProductId(), cartItem.getVariationSku(),
+                    cartItem.getQuantity()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = new StockReservation(null, userId, null, heldItems,
+                StockReservation.Status.HELD, now.plus(Duration.ofMillis(reservationTtlMs)), now);
+        try {
+            return Optional.of(mongoTemplate.insert(reservation));
+        } catch (Exception e) {
+            restock(heldItems);
+            throw e;
+        }
+    }
+
+    // Gives an unused hold back to the stock, false when the user has no such held reservation
+    public boolean release(String reservationId, Long userId) {
+        Query query = new Query(Criteria.where("id").is(reservationId)
+                .and("userId").is(userId)
+                .and("status").is(StockReservation.Status.HELD));
+        StockReservation released = transition(query, StockReservation.Status.RELEASED);
+        if (released == null) {
+            return false;
+        }
+        restock(released.getItems());
+        return true;
+    }
+
+    // Takes a live hold of the user for an order being placed
+    public Optional<StockReservation> claim(String reservationId, Long userId) {
+        Query query = new Query(Criteria.where("id").is(reservationId)
+                .and("userId").is(userId)
+                .and("status").is(StockReservation.Status.HELD)
+                .and("expiresAt").gt(LocalDateTime.now()));
+        return Optional.ofNullable(transition(query, StockReservation.Status.ORDERED));
+    }
+
+    public void attachOrder(String reservationId, Long orderId) {
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(reservationId).and("status").is(StockReservation.Status.ORDERED)),
+                new Update().set("orderId", orderId),
+                StockReservation.class);
+    }
+
+    // The order could not be placed, the hold is live again until it expires
+    public void unclaim(String reservationId) {
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(reservationId).and("status").is(StockReservation.Status.ORDERED)),
+                new Update().set("status", StockReservation.Status.HELD).unset("orderId"),
+                StockReservation.class);
+    }
+
+    public void confirmOrder(Long orderId) {
+        settleOrder(orderId, StockReservation.Status.CONFIRMED);
+    }
+
+    // The units go back to the stock with the cancelled order's items, only the hold is closed here
+    public void releaseOrder(Long orderId) {
+        settleOrder(orderId, StockReservation.Status.RELEASED);
+    }
+
+    /**
+     * Gives the stock of expired holds back. Each hold is moved to RELEASED with a conditional
+     * update first, so concurrent sweeps (or nodes) never restock the same hold twice.
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.reservation-sweep-ms:30000}")
+    public void releaseExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(StockReservation.Status.HELD).and("expiresAt").lt(now),
+                Criteria.where("status").is(StockReservation.Status.ORDERED).and("orderId").is(null)
+                        .and("expiresAt").lt(now.minusMinutes(ORPHANED_ORDER_GRACE_MINUTES))
+        ));
+
+        int released = 0;
+        StockReservation reservation;
+        while ((reservation = transition(query, StockReservation.Status.RELEASED)) != null) {
+            restock(reservation.getItems());
+            released++;
+        }
+        if (released > 0) {
+            System.out.println("Released " + released + " expired stock reservations");
+        }
+    }
+
+    public void restock(List<StockReservation.Item> items) {
+        for (StockReservation.Item item : items) {
+            try {
+                productService.adjustStock(item.getProductId(), item.getVariationSku(), item.getQuantity());
+            } catch (Exception e) {
+                System.err.println("Error restocking product " + item.getProductId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void settleOrder(Long orderId, StockReservation.Status status) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("orderId").is(orderId).and("status").is(StockReservation.Status.ORDERED)),
+                new Update().set("status", status),
+                StockReservation.class);
+    }
+
+    // Moves the first reservation matching the query to the given status, null when none matches
+    private StockReservation transition(Query query, StockReservation.Status status) {
+        return mongoTemplate.findAndModify(query, new Update().set("status", status),
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+    }
+}
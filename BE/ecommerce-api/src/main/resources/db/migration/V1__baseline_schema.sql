@@ -0,0 +1,79 @@
+-- Baseline of the schema Hibernate used to create with ddl-auto=update.
+-- Every statement is idempotent so the script also runs against databases created that way
+-- (spring.flyway.baseline-version=0), there it only adds what is missing.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_items_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    first_name  VARCHAR(50)  NOT NULL,
+    last_name   VARCHAR(50)  NOT NULL,
+    email       VARCHAR(100) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    phone       VARCHAR(15),
+    role        VARCHAR(255) NOT NULL,
+    is_active   BOOLEAN,
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+    id                BIGINT         NOT NULL PRIMARY KEY,
+    user_id           BIGINT         NOT NULL REFERENCES users (id),
+    status            VARCHAR(255)   NOT NULL,
+    total_amount      NUMERIC(10, 2) NOT NULL,
+    shipping_address  VARCHAR(255),
+    billing_address   VARCHAR(255),
+    payment_method    VARCHAR(255),
+    notes             VARCHAR(255),
+    created_at        TIMESTAMP(6),
+    updated_at        TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id                     BIGINT         NOT NULL PRIMARY KEY,
+    order_id               BIGINT         NOT NULL REFERENCES orders (id),
+    product_id             VARCHAR(255)   NOT NULL,
+    variation_sku          VARCHAR(255),
+    product_name           VARCHAR(255)   NOT NULL,
+    variation_description  VARCHAR(255),
+    product_image_url      VARCHAR(255),
+    product_category       VARCHAR(50),
+    quantity               INTEGER        NOT NULL,
+    unit_price             NUMERIC(10, 2) NOT NULL,
+    subtotal               NUMERIC(10, 2) NOT NULL
+);
+
+-- Added after the first ddl-auto=update databases were created
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS product_category VARCHAR(50);
+
+CREATE TABLE IF NOT EXISTS cart_items (
+    id             BIGINT       NOT NULL PRIMARY KEY,
+    user_id        BIGINT       NOT NULL REFERENCES users (id),
+    product_id     VARCHAR(255) NOT NULL,
+    variation_sku  VARCHAR(255),
+    quantity       INTEGER      NOT NULL,
+    created_at     TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS sales_rollups (
+    id            BIGSERIAL      NOT NULL PRIMARY KEY,
+    granularity   VARCHAR(10)    NOT NULL,
+    bucket_start  TIMESTAMP(6)   NOT NULL,
+    category      VARCHAR(50)    NOT NULL,
+    order_count   BIGINT         NOT NULL,
+    units_sold    BIGINT         NOT NULL,
+    revenue       NUMERIC(14, 2) NOT NULL,
+    updated_at    TIMESTAMP(6),
+    CONSTRAINT uk_sales_rollups_bucket UNIQUE (granularity, bucket_start, category)
+);
+
+-- Ids used to come from IDENTITY columns, move each sequence past the highest id in its table.
+-- Sequences only ever move forward, with pooled-lo the next block starts past every existing id.
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq)));
+SELECT setval('orders_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM orders), (SELECT last_value FROM orders_seq)));
+SELECT setval('order_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM order_items), (SELECT last_value FROM order_items_seq)));
+SELECT setval('cart_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM cart_items), (SELECT last_value FROM cart_items_seq)));
@@ -0,0 +1,31 @@
+-- Indexes matched to the repository queries on the request path. Postgres does not index
+-- foreign keys on its own, so without these every lookup below is a sequential scan.
+
+-- CartStore.load (findByUserId) and the findByUserIdAndProductId[AndVariationSku] lookups
+CREATE INDEX IF NOT EXISTS idx_cart_items_user_product_sku
+    ON cart_items (user_id, product_id, variation_sku);
+
+-- findByUserIdOrderByCreatedAtDesc (list and page), countOrdersByUserId, findByUserIdAndStatus
+CREATE INDEX IF NOT EXISTS idx_orders_user_created
+    ON orders (user_id, created_at DESC);
+
+-- findByStatusOrderByCreatedAtDesc; total_amount is included so aggregateTotalsByStatus
+-- can be answered from the index alone
+CREATE INDEX IF NOT EXISTS idx_orders_status_created
+    ON orders (status, created_at DESC) INCLUDE (total_amount);
+
+-- findTop10ByOrderByCreatedAtDesc, findOrdersByDateRange and the sales rollup rebuild
+CREATE INDEX IF NOT EXISTS idx_orders_created
+    ON orders (created_at);
+
+-- Batch fetch of Order.orderItems and findByOrderId
+CREATE INDEX IF NOT EXISTS idx_order_items_order
+    ON order_items (order_id);
+
+-- findByProductId and getTotalQuantitySoldForProduct (index-only with quantity included)
+CREATE INDEX IF NOT EXISTS idx_order_items_product
+    ON order_items (product_id) INCLUDE (quantity);
+
+-- SalesRollupRepository.findBuckets for one category, the unique key serves the other overload
+CREATE INDEX IF NOT EXISTS idx_sales_rollups_category_bucket
+    ON sales_rollups (granularity, category, bucket_start);
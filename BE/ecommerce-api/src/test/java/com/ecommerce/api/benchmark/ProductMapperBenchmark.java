@@ -0,0 +1,90 @@
+package com.ecommerce.api.benchmark;
+
+import com.ecommerce.api.dto.ProductResponse;
+import com.ecommerce.api.entity.Product;
+import com.ecommerce.api.entity.ProductSpecifications;
+import com.ecommerce.api.entity.ProductVariation;
+import com.ecommerce.api.entity.SpecialProperties;
+import com.ecommerce.api.service.ProductMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductMapper against the ModelMapper bean it replaced (AppConfig.modelMapper(), a default
+ * new ModelMapper()) on a product shaped like the seeded catalogue.
+ *
+ * Not a test (surefire skips it), run it with the test classpath:
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.ecommerce.api.benchmark.ProductMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+    private Product product;
+    private ProductMapper productMapper;
+    private ModelMapper modelMapper;
+
+    @Setup
+    public void setUp() {
+        product = new Product();
+        product.setId("65a1f0c2e4b0a1b2c3d4e5f6");
+        product.setSku("HP-WH-1000");
+        product.setName("Wireless Noise Cancelling Headphones");
+        product.setDescription("Over-ear headphones with 30 hours of battery life");
+        product.setCategory("Electronics");
+        product.setSubCategory("Headphones");
+        product.setBrand("Sony");
+        product.setPrice(new BigDecimal("299.99"));
+        product.setStockQuantity(120);
+        product.setImages(List.of("https://example.com/1.jpg", "https://example.com/2.jpg"));
+        product.setSpecifications(new ProductSpecifications("Bluetooth 5.2", 30, true,
+                List.of("Black", "Silver"), "250g", "20 x 18 x 8 cm", "1 year", "Plastic",
+                Map.of("driver", "40mm")));
+        product.setAttributes(Map.of("color", "Black", "wireless", true));
+        product.setVariations(List.of(
+                new ProductVariation("HP-WH-1000-BLK", "Black", null, new BigDecimal("299.99"), 60, null, true),
+                new ProductVariation("HP-WH-1000-SLV", "Silver", null, new BigDecimal("299.99"), 60, null, true)));
+        product.setSpecialProperties(new SpecialProperties(true, false, true));
+        product.setAverageRating(4.6);
+        product.setTotalReviews(1250);
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+
+        productMapper = new ProductMapper();
+        modelMapper = new ModelMapper();
+    }
+
+    @Benchmark
+    public ProductResponse productMapper() {
+        return productMapper.toResponse(product);
+    }
+
+    // The removed ProductService.convertToResponse
+    @Benchmark
+    public ProductResponse modelMapper() {
+        ProductResponse response = modelMapper.map(product, ProductResponse.class);
+        response.setAverageRating(product.getAverageRating());
+        response.setTotalReviews(product.getTotalReviews());
+        response.setTotalStock(product.getTotalStock());
+        response.setMainImageUrl(product.getMainImageUrl());
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,195 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.OrderResponse;
+import com.ecommerce.api.dto.ProductResponse;
+import com.ecommerce.api.entity.Order;
+import com.ecommerce.api.entity.OrderItem;
+import com.ecommerce.api.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the SQL statements of the order reads and of createOrder with Hibernate statistics, so
+ * an N+1 on the user or the items of each order, or items inserted one by one, show up as a
+ * failing count. Runs on H2 with the schema generated
+ * from the entities (the Flyway migrations are PostgreSQL only).
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(OrderService.class)
+class OrderServiceStatementCountTest {
+
+    private static final int USERS = 3;
+    private static final int ORDERS_PER_USER = 4;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private SalesRollupService salesRollupService;
+
+    @MockBean
+    private StockReservationService stockReservationService;
+
+    private Statistics statistics;
+
+    private Long firstUserId;
+
+    @BeforeEach
+    void setUp() {
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setFirstName("First" + u);
+            user.setLastName("Last" + u);
+            user.setEmail("user" + u + "@example.com");
+            user.setPassword("password");
+            entityManager.persist(user);
+            if (firstUserId == null) {
+                firstUserId = user.getId();
+            }
+            for (int o = 0; o < ORDERS_PER_USER; o++) {
+                Order order = new Order();
+                order.setUser(user);
+                order.setStatus(o % 2 == 0 ? Order.OrderStatus.PENDING : Order.OrderStatus.SHIPPED);
+                order.setTotalAmount(BigDecimal.valueOf(30));
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    OrderItem item = new OrderItem();
+                    item.setOrder(order);
+                    item.setProductId("product-" + i);
+                    item.setProductName("Product " + i);
+                    item.setQuantity(1);
+                    item.setUnitPrice(BigDecimal.TEN);
+                    item.setSubtotal(BigDecimal.TEN);
+                    order.getOrderItems().add(item);
+                }
+                entityManager.persist(order);
+            }
+        }
+        entityManager.flush();
+        // Reads below start from an empty persistence context, like a new request
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllOrdersLoadsPageUsersAndItemsInTwoStatements() {
+        Page<OrderResponse> orders = orderService.getAllOrders(PageRequest.of(0, 20), false);
+
+        assertEquals(USERS * ORDERS_PER_USER, orders.getNumberOfElements());
+        assertItemsLoaded(orders.getContent());
+        // Orders joined with their users, then the items of the whole page in one IN query.
+        // The page is not full, so Spring Data skips the count query
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllOrdersOnAFullPageAddsOnlyTheCountQuery() {
+        Page<OrderResponse> orders = orderService.getAllOrders(PageRequest.of(0, 5), false);
+
+        assertEquals(5, orders.getNumberOfElements());
+        assertItemsLoaded(orders.getContent());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getOrdersByUserIdLoadsOrdersAndItemsInTwoStatements() {
+        List<OrderResponse> orders = orderService.getOrdersByUserId(firstUserId, false);
+
+        assertEquals(ORDERS_PER_USER, orders.size());
+        assertItemsLoaded(orders);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getOrdersByStatusLoadsOrdersAndItemsInTwoStatements() {
+        List<OrderResponse> orders = orderService.getOrdersByStatus("pending", false).orElseThrow();
+
+        assertEquals(USERS * ORDERS_PER_USER / 2, orders.size());
+        assertItemsLoaded(orders);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getRecentOrdersLoadsOrdersAndItemsInTwoStatements() {
+        List<OrderResponse> orders = orderService.getRecentOrders(10);
+
+        assertEquals(10, orders.size());
+        assertItemsLoaded(orders);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void createOrderInsertsTheOrderAndBatchesItsItems() {
+        Map<String, ProductResponse> products = new HashMap<>();
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            ProductResponse product = new ProductResponse();
+            product.setId("product-" + i);
+            product.setName("Product " + i);
+            product.setCategory("Category");
+            product.setPrice(BigDecimal.TEN);
+            products.put(product.getId(), product);
+            items.add(Map.of("productId", product.getId(), "quantity", 2));
+        }
+        when(productService.getProductsByIds(any())).thenReturn(products);
+        when(productService.adjustStock(anyString(), isNull(), anyInt())).thenReturn(Optional.of(10));
+
+        Optional<OrderResponse> order = orderService.createOrder(Map.of(
+                "userId", firstUserId,
+                "shippingAddress", "1 Main Street",
+                "items", items));
+        entityManager.flush();
+
+        assertEquals(ITEMS_PER_ORDER, order.orElseThrow().getOrderItems().size());
+        assertEquals(1 + ITEMS_PER_ORDER, statistics.getEntityInsertCount());
+        // The user lookup, the order INSERT and one batched INSERT for all the items. The ids come
+        // from the blocks of 50 the sequences handed out for the seeded rows, so no sequence call
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    private static void assertItemsLoaded(List<OrderResponse> orders) {
+        for (OrderResponse order : orders) {
+            assertEquals(ITEMS_PER_ORDER, order.getOrderItems().size());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.config.MongoConfig;
+import com.ecommerce.api.repository.ProductRepository;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * checkQueryPlans without a MongoDB: the driver below a real MongoTemplate is mocked, so this
+ * checks that every ProductRepository query reaches explain with the filter the repository
+ * builds, and that none of them is actually run.
+ */
+class ProductIndexProvisionerQueryCaptureTest {
+
+    private static final Document INDEX_PLAN = Document.parse(
+            "{ 'queryPlanner': { 'winningPlan': { 'stage': 'FETCH', 'inputStage': { 'stage': 'IXSCAN' } } } }");
+    private static final Document COLLECTION_SCAN_PLAN = Document.parse(
+            "{ 'queryPlanner': { 'winningPlan': { 'stage': 'COLLSCAN' } } }");
+
+    private final List<Document> filters = new ArrayList<>();
+
+    private ProductIndexProvisioner provisioner;
+
+    private FindIterable<Document> findIterable;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        findIterable = mock(FindIterable.class, RETURNS_SELF);
+        when(collection.find(any(Bson.class), any(Class.class))).thenAnswer(invocation -> {
+            Document filter = invocation.getArgument(0);
+            filters.add(filter);
+            // Pretend variations.sku has no index
+            when(findIterable.explain()).thenReturn(filter.containsKey("variations.sku") ? COLLECTION_SCAN_PLAN : INDEX_PLAN);
+            return findIterable;
+        });
+        MongoDatabase database = mock(MongoDatabase.class);
+        when(database.getCodecRegistry()).thenReturn(MongoClientSettings.getDefaultCodecRegistry());
+        when(database.getCollection(any(String.class), any(Class.class))).thenReturn(collection);
+        when(database.getCollection(any(String.class))).thenReturn(collection);
+        MongoDatabaseFactory databaseFactory = mock(MongoDatabaseFactory.class);
+        when(databaseFactory.getMongoDatabase()).thenReturn(database);
+        when(databaseFactory.getMongoDatabase(any(String.class))).thenReturn(database);
+
+        // Same conversions as the application, prices are written as Decimal128
+        MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        provisioner = new ProductIndexProvisioner();
+        ReflectionTestUtils.setField(provisioner, "mongoTemplate", new MongoTemplate(databaseFactory, converter));
+        ReflectionTestUtils.setField(provisioner, "productRepository", mock(ProductRepository.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void everyRepositoryQueryIsExplainedAndNoneIsRun() {
+        Map<String, Object> result = provisioner.checkQueryPlans();
+
+        assertEquals(Map.of(), result.get("errors"));
+        Map<String, List<String>> plans = (Map<String, List<String>>) result.get("plans");
+        long queryMethods = Arrays.stream(ProductRepository.class.getDeclaredMethods())
+                .filter(method -> !method.isDefault() && !method.isSynthetic())
+                .count();
+        assertEquals(queryMethods, plans.size());
+        plans.forEach((method, stages) -> assertTrue(!stages.isEmpty(), method + " was not explained"));
+        verify(findIterable, never()).iterator();
+        verify(findIterable, never()).cursor();
+        verify(findIterable, never()).first();
+    }
+
+    @Test
+    void filtersAreTheOnesTheRepositoryBuilds() {
+        provisioner.checkQueryPlans();
+
+        assertTrue(filters.stream().anyMatch(filter -> filter.equals(Document.parse(
+                "{ 'isActive': true, 'price': { $gte: { $numberDecimal: '1' }, $lte: { $numberDecimal: '1' } } }"))),
+                "price range filter missing from " + filters);
+        assertTrue(filters.contains(Document.parse("{ 'sku': 'placeholder', 'isActive': true }")),
+                "derived findBySkuAndIsActiveTrue filter missing from " + filters);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void collectionScansAreReported() {
+        Map<String, Object> result = provisioner.checkQueryPlans();
+
+        assertEquals(List.of("findByVariationSku(String)"), result.get("collectionScans"));
+    }
+}
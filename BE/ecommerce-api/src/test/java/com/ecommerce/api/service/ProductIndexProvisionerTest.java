@@ -0,0 +1,55 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.config.MongoConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Provisions the product indexes on a throwaway MongoDB container and checks that no
+ * ProductRepository query still plans a collection scan. The container replaces
+ * spring.data.mongodb.uri, so a developer's database is never touched. Skipped where Docker
+ * is not available.
+ */
+@DataMongoTest
+@Import({ MongoConfig.class, ProductIndexProvisioner.class })
+@Testcontainers(disabledWithoutDocker = true)
+class ProductIndexProvisionerTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private ProductIndexProvisioner productIndexProvisioner;
+
+    @Test
+    void provisionCreatesEveryDeclaredIndex() {
+        List<String> indexes = productIndexProvisioner.provision();
+
+        productIndexProvisioner.declaredIndexes().forEach(index ->
+                assertTrue(indexes.contains((String) index.getIndexOptions().get("name")),
+                        "missing " + index.getIndexOptions().get("name")));
+    }
+
+    @Test
+    void noRepositoryQueryScansTheCollectionAfterProvisioning() {
+        productIndexProvisioner.provision();
+
+        Map<String, Object> result = productIndexProvisioner.checkQueryPlans();
+
+        assertEquals(Map.of(), result.get("errors"));
+        assertEquals(List.of(), result.get("collectionScans"), "plans: " + result.get("plans"));
+    }
+}
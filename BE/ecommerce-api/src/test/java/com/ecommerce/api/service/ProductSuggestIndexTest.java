@@ -0,0 +1,145 @@
+package com.ecommerce.api.service;
+
+import com.ecommerce.api.dto.SuggestionResponse;
+import com.ecommerce.api.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The trie is only reachable through ProductChangedEvent and suggest(), so the structural cases
+ * (edge splits, merges, cached top lists) are checked through the lookups that depend on them.
+ */
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSuggestIndex();
+    }
+
+    @Test
+    void insertedProductIsSuggestedByNameBrandAndCategory() {
+        save(product("1", "Samsung Galaxy S23", "Samsung", "Electronics", 10));
+
+        // Same weight, ties are ordered by text
+        assertEquals(List.of(new SuggestionResponse("Samsung", "brand"), new SuggestionResponse("Samsung Galaxy S23", "name")),
+                index.suggest("sam", 10));
+        assertEquals(List.of(new SuggestionResponse("Electronics", "category")), index.suggest("elec", 10));
+        assertEquals(List.of(), index.suggest("x", 10));
+    }
+
+    @Test
+    void wordStartsAreMatchedButNotTheMiddleOfAWord() {
+        save(product("1", "Samsung Galaxy S23", "Samsung", "Electronics", 10));
+
+        assertEquals(List.of("Samsung Galaxy S23"), texts(index.suggest("gal", 10)));
+        assertEquals(List.of("Samsung Galaxy S23"), texts(index.suggest("S23", 10)));
+        assertEquals(List.of(), index.suggest("axy", 10));
+    }
+
+    @Test
+    void keysLeavingAnEdgeHalfwaySplitIt() {
+        save(product("1", "Galaxy Buds", null, null, 5));
+        // Splits the "galaxy buds" edge at "galaxy "
+        save(product("2", "Galaxy S23", null, null, 10));
+        // Splits it again at "ga"
+        save(product("3", "Garmin Watch", null, null, 1));
+
+        assertEquals(List.of("Galaxy S23", "Galaxy Buds", "Garmin Watch"), texts(index.suggest("ga", 10)));
+        assertEquals(List.of("Galaxy S23", "Galaxy Buds"), texts(index.suggest("galaxy", 10)));
+        assertEquals(List.of("Galaxy Buds"), texts(index.suggest("galaxy b", 10)));
+        assertEquals(List.of("Galaxy S23"), texts(index.suggest("galaxy s2", 10)));
+        assertEquals(List.of("Garmin Watch"), texts(index.suggest("gar", 10)));
+    }
+
+    @Test
+    void loweringAWeightRecomputesTheTopSuggestions() {
+        // 11 phrases under "phone", one more than a node keeps
+        for (int i = 0; i < ProductSuggestIndex.MAX_SUGGESTIONS; i++) {
+            save(product("p" + i, "Phone " + i, null, null, 10 + i));
+        }
+        save(product("best", "Phone Best", null, null, 100));
+        assertEquals("Phone Best", index.suggest("phone", 10).get(0).getText());
+        assertFalse(texts(index.suggest("phone", 10)).contains("Phone 0"));
+
+        // Least popular now: it drops out of the cached top list and Phone 0 moves in
+        save(product("best", "Phone Best", null, null, 0));
+
+        List<String> texts = texts(index.suggest("phone", 10));
+        assertEquals(ProductSuggestIndex.MAX_SUGGESTIONS, texts.size());
+        assertEquals("Phone 9", texts.get(0));
+        assertTrue(texts.contains("Phone 0"));
+        assertFalse(texts.contains("Phone Best"));
+        assertEquals(List.of("Phone Best"), texts(index.suggest("phone b", 10)));
+    }
+
+    @Test
+    void sharedPhrasesAddUpTheWeightOfTheirProducts() {
+        save(product("1", "Apple iPhone", "Apple", null, 3));
+        save(product("2", "Apple iPad", "Apple", null, 3));
+        save(product("3", "Apple Watch", null, null, 5));
+
+        // Brand "Apple" carries two products (weight 8), more than any single name
+        assertEquals(new SuggestionResponse("Apple", "brand"), index.suggest("apple", 10).get(0));
+    }
+
+    @Test
+    void removalDropsTheSuggestionAndMergesTheSplitEdge() {
+        save(product("1", "Galaxy Buds", null, null, 5));
+        save(product("2", "Galaxy S23", null, null, 10));
+
+        Product removed = product("1", "Galaxy Buds", null, null, 5);
+        removed.setIsActive(false);
+        save(removed);
+
+        assertEquals(List.of(), index.suggest("galaxy b", 10));
+        assertEquals(List.of(), index.suggest("buds", 10));
+        // "galaxy " and "s23" are merged back into one edge, lookups ending on either side still work
+        assertEquals(List.of("Galaxy S23"), texts(index.suggest("gal", 10)));
+        assertEquals(List.of("Galaxy S23"), texts(index.suggest("galaxy ", 10)));
+        assertEquals(List.of("Galaxy S23"), texts(index.suggest("galaxy s", 10)));
+
+        // And the merged edge can be split again
+        save(product("3", "Galaxy Tab", null, null, 1));
+        assertEquals(List.of("Galaxy S23", "Galaxy Tab"), texts(index.suggest("galaxy", 10)));
+    }
+
+    @Test
+    void limitCapsTheSuggestions() {
+        save(product("1", "Samsung Galaxy S23", "Samsung", "Smartphones", 10));
+
+        assertEquals(1, index.suggest("s", 1).size());
+        assertEquals(List.of(), index.suggest("s", 0));
+        assertEquals(List.of(), index.suggest("  ", 10));
+    }
+
+    private void save(Product product) {
+        index.onProductChanged(new ProductChangedEvent(product));
+    }
+
+    private static Product product(String id, String name, String brand, String category, int totalReviews) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setTotalReviews(totalReviews);
+        return product;
+    }
+
+    private static List<String> texts(List<SuggestionResponse> suggestions) {
+        List<String> texts = new ArrayList<>();
+        for (SuggestionResponse suggestion : suggestions) {
+            texts.add(suggestion.getText());
+        }
+        return texts;
+    }
+}
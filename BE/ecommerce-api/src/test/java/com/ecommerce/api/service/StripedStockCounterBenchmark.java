@@ -0,0 +1,68 @@
+package com.ecommerce.api.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of FlashSaleStockService.StripedStockCounter.tryTake against a single AtomicLong
+ * taken with a CAS loop, with all threads taking one unit at a time from the same SKU.
+ *
+ * Lives in the service package because the counter is package-private. Not a test (surefire
+ * skips it), run it with the test classpath:
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.ecommerce.api.service.StripedStockCounterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripedStockCounterBenchmark {
+
+    // Enough that no run sells out, a failed take would measure the give-back path instead
+    private static final long STOCK = Long.MAX_VALUE / 2;
+
+    private FlashSaleStockService.StripedStockCounter striped;
+    private AtomicLong single;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        striped = new FlashSaleStockService.StripedStockCounter();
+        striped.reset(STOCK);
+        single = new AtomicLong(STOCK);
+    }
+
+    @Benchmark
+    public boolean striped() {
+        return striped.tryTake(1);
+    }
+
+    @Benchmark
+    public boolean singleAtomicLong() {
+        long current = single.get();
+        while (current >= 1) {
+            if (single.compareAndSet(current, current - 1)) {
+                return true;
+            }
+            current = single.get();
+        }
+        return false;
+    }
+
+    // One run per thread count, 1, 2, 4, ... up to twice the processors (at least 8)
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            new Runner(new OptionsBuilder()
+                    .include(StripedStockCounterBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
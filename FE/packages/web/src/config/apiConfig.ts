@@ -15,6 +15,7 @@ export const API_CONFIG = {
   PRODUCTS: {
     LIST: '/products',
     DETAIL: '/products/:id',
+    REVIEWS: '/products/:id/reviews',
     SEARCH: '/products/search',
     CATEGORY: '/products/category/:category',
     PRICE_RANGE: '/products/price-range',
@@ -7,6 +7,7 @@ class ProductService {
   private readonly endpoints = {
     list: createApiMethod.get(API_CONFIG.PRODUCTS.LIST),
     detail: createApiMethod.get(API_CONFIG.PRODUCTS.DETAIL),
+    reviews: createApiMethod.get(API_CONFIG.PRODUCTS.REVIEWS),
     search: createApiMethod.get(API_CONFIG.PRODUCTS.SEARCH),
     category: createApiMethod.get(API_CONFIG.PRODUCTS.CATEGORY),
     priceRange: createApiMethod.get(API_CONFIG.PRODUCTS.PRICE_RANGE),
@@ -108,8 +109,14 @@ class ProductService {
   // Get single product by ID (updated for string ID)
   async getProductById(id: string): Promise<Product> {
     const endpoint = this.endpoints.detail({ id });
-    const response = await api.get(endpoint);
-    return this.transformProduct(response.data);
+    // Reviews are no longer embedded in the product, load the newest ones alongside it
+    const [response, reviews] = await Promise.all([
+      api.get(endpoint),
+      api.get(this.endpoints.reviews({ id }, { page: 0, size: 20 }))
+        .then(reviewsResponse => reviewsResponse.data.content)
+        .catch(() => []),
+    ]);
+    return this.transformProduct({ ...response.data, reviews });
   }
 
   // Search products by query (updated to use new search endpoint)